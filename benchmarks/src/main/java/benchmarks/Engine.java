@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// Access to CalculatorEngine, which is in the unnamed package and so cannot be referenced by name from the benchmarks.
+// JMH requires benchmarks to be in a named package. The handles are constants, so the JIT inlines calls through them as if they were direct.
+final class Engine {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final Class<?> ENGINE = load("CalculatorEngine");
+
+    static final MethodHandle NEW = constructor();
+    static final MethodHandle ENTER = virtual("enter", void.class, String.class);
+    static final MethodHandle BACKSPACE = virtual("backspace", void.class);
+    static final MethodHandle OPERATE = virtual("operate", void.class, String.class);
+    static final MethodHandle SOLVE = virtual("solve", void.class);
+    static final MethodHandle CALCULATE = virtual("calculate", String.class);
+    static final MethodHandle CLEAR = virtual("clear", void.class);
+    static final MethodHandle GET_DISPLAY_TEXT = virtual("getDisplayText", String.class);
+
+    private Engine() {}
+
+    // Create a new engine and enter a calculation into it, leaving the second operand as the current operand.
+    static Object create(String operandFirst, String operator, String operandSecond) throws Throwable {
+        Object engine = (Object)NEW.invokeExact();
+        enterText(engine, operandFirst);
+        OPERATE.invokeExact(engine, operator);
+        enterText(engine, operandSecond);
+        return engine;
+    }
+
+    // Enter text one character at a time, as the keypad does.
+    static void enterText(Object engine, String text) throws Throwable {
+        for (int i = 0; i < text.length(); i++) {
+            ENTER.invokeExact(engine, text.substring(i, i + 1));
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle constructor() {
+        try {
+            return LOOKUP.findConstructor(ENGINE, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle virtual(String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            MethodHandle handle = LOOKUP.findVirtual(ENGINE, name, MethodType.methodType(returnType, parameterTypes));
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
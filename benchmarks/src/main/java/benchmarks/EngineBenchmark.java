@@ -0,0 +1,143 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Hot paths of CalculatorEngine: calculating, chaining operations, repeated solves, keystrokes, and display text.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EngineBenchmark {
+    // An engine with a calculation entered, ready to be calculated, for each operator and for finite and overflowing results.
+    @State(Scope.Thread)
+    public static class CalculateState {
+        @Param({"+", "-", "*", "/", "^"})
+        public String operator;
+        @Param({"finite", "overflow"})
+        public String result;
+
+        Object engine;
+
+        @Setup
+        public void setup() throws Throwable {
+            boolean overflow = result.equals("overflow");
+            switch (operator) {
+                case "+":
+                    engine = overflow ? Engine.create("9000000000000000000", operator, "900000000000000000") : Engine.create("12.75", operator, "0.1");
+                    break;
+                case "-":
+                    engine = overflow ? Engine.create("9000000000000000000", operator, "900000000000000000") : Engine.create("12.75", operator, "0.1");
+                    break;
+                case "*":
+                    engine = overflow ? Engine.create("9999999999", operator, "9999999999") : Engine.create("12.75", operator, "3.5");
+                    break;
+                case "/":
+                    engine = overflow ? Engine.create("9000000000000000000", operator, ".5") : Engine.create("12.75", operator, "3");
+                    break;
+                default:
+                    engine = overflow ? Engine.create("10", operator, "19") : Engine.create("1.5", operator, "7");
+                    break;
+            }
+        }
+    }
+
+    // An engine that has solved a calculation, so that each further solve repeats it.
+    @State(Scope.Thread)
+    public static class SolveState {
+        Object engine;
+
+        @Setup(Level.Iteration)
+        public void setup() throws Throwable {
+            engine = Engine.create("1.5", "+", "0.25");
+            Engine.SOLVE.invokeExact(engine);
+        }
+    }
+
+    // A new engine with nothing entered.
+    @State(Scope.Thread)
+    public static class EmptyState {
+        Object engine;
+
+        @Setup
+        public void setup() throws Throwable {
+            engine = (Object)Engine.NEW.invokeExact();
+        }
+    }
+
+    // An engine showing a partially entered operand.
+    @State(Scope.Thread)
+    public static class DisplayState {
+        Object engine;
+
+        @Setup
+        public void setup() throws Throwable {
+            engine = Engine.create("42", "-", "1234.5678");
+        }
+    }
+
+    @Benchmark
+    public String calculate(CalculateState state) throws Throwable {
+        return (String)Engine.CALCULATE.invokeExact(state.engine);
+    }
+
+    // Enter "12 + 3 * 4 - 5 / 6 ^ 2" with each operator applied to the result so far.
+    @Benchmark
+    public String operateChain(EmptyState state) throws Throwable {
+        Object engine = state.engine;
+        Engine.CLEAR.invokeExact(engine);
+        Engine.ENTER.invokeExact(engine, "1");
+        Engine.ENTER.invokeExact(engine, "2");
+        Engine.OPERATE.invokeExact(engine, "+");
+        Engine.ENTER.invokeExact(engine, "3");
+        Engine.OPERATE.invokeExact(engine, "*");
+        Engine.ENTER.invokeExact(engine, "4");
+        Engine.OPERATE.invokeExact(engine, "-");
+        Engine.ENTER.invokeExact(engine, "5");
+        Engine.OPERATE.invokeExact(engine, "/");
+        Engine.ENTER.invokeExact(engine, "6");
+        Engine.OPERATE.invokeExact(engine, "^");
+        Engine.ENTER.invokeExact(engine, "2");
+        Engine.SOLVE.invokeExact(engine);
+        return (String)Engine.CALCULATE.invokeExact(engine);
+    }
+
+    @Benchmark
+    public void repeatedSolve(SolveState state) throws Throwable {
+        Engine.SOLVE.invokeExact(state.engine);
+    }
+
+    // Type "1234.56" and delete it again.
+    @Benchmark
+    public void enterAndBackspace(EmptyState state) throws Throwable {
+        Object engine = state.engine;
+        Engine.ENTER.invokeExact(engine, "1");
+        Engine.ENTER.invokeExact(engine, "2");
+        Engine.ENTER.invokeExact(engine, "3");
+        Engine.ENTER.invokeExact(engine, "4");
+        Engine.ENTER.invokeExact(engine, ".");
+        Engine.ENTER.invokeExact(engine, "5");
+        Engine.ENTER.invokeExact(engine, "6");
+        for (int i = 0; i < 7; i++) {
+            Engine.BACKSPACE.invokeExact(engine);
+        }
+    }
+
+    @Benchmark
+    public String getDisplayText(DisplayState state) throws Throwable {
+        return (String)Engine.GET_DISPLAY_TEXT.invokeExact(state.engine);
+    }
+}
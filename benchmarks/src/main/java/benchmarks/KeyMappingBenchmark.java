@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import javafx.scene.input.KeyCode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The lookup done by the key handler in Calculator.start() for every key event.
+// Buttons cannot be created without starting the JavaFX toolkit, so strings stand in for them. The map has the same keys and the same mix of single and paired values.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class KeyMappingBenchmark {
+    @Param({"DIGIT5", "DIGIT8", "NUMPAD3", "ENTER", "A"})
+    public KeyCode code;
+    @Param({"false", "true"})
+    public boolean shift;
+
+    private HashMap<KeyCode, Object> buttonMapping;
+
+    @Setup
+    public void setup() {
+        String[] digits = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+        buttonMapping = new HashMap<>();
+        buttonMapping.put(KeyCode.ENTER, "=");
+        buttonMapping.put(KeyCode.ESCAPE, "C");
+        buttonMapping.put(KeyCode.BACK_SPACE, "backspace");
+        buttonMapping.put(KeyCode.DIGIT0, digits[0]);
+        buttonMapping.put(KeyCode.DIGIT1, digits[1]);
+        buttonMapping.put(KeyCode.DIGIT2, digits[2]);
+        buttonMapping.put(KeyCode.DIGIT3, digits[3]);
+        buttonMapping.put(KeyCode.DIGIT4, digits[4]);
+        buttonMapping.put(KeyCode.DIGIT5, digits[5]);
+        buttonMapping.put(KeyCode.DIGIT6, new String[]{digits[6], "^"});
+        buttonMapping.put(KeyCode.DIGIT7, digits[7]);
+        buttonMapping.put(KeyCode.DIGIT8, new String[]{digits[8], "*"});
+        buttonMapping.put(KeyCode.DIGIT9, digits[9]);
+        buttonMapping.put(KeyCode.NUMPAD0, digits[0]);
+        buttonMapping.put(KeyCode.NUMPAD1, digits[1]);
+        buttonMapping.put(KeyCode.NUMPAD2, digits[2]);
+        buttonMapping.put(KeyCode.NUMPAD3, digits[3]);
+        buttonMapping.put(KeyCode.NUMPAD4, digits[4]);
+        buttonMapping.put(KeyCode.NUMPAD5, digits[5]);
+        buttonMapping.put(KeyCode.NUMPAD6, digits[6]);
+        buttonMapping.put(KeyCode.NUMPAD7, digits[7]);
+        buttonMapping.put(KeyCode.NUMPAD8, digits[8]);
+        buttonMapping.put(KeyCode.NUMPAD9, digits[9]);
+        buttonMapping.put(KeyCode.EQUALS, new String[]{"=", "+"});
+        buttonMapping.put(KeyCode.ADD, "+");
+        buttonMapping.put(KeyCode.MINUS, "-");
+        buttonMapping.put(KeyCode.SUBTRACT, "-");
+        buttonMapping.put(KeyCode.MULTIPLY, "*");
+        buttonMapping.put(KeyCode.SLASH, new String[]{"/", "?"});
+        buttonMapping.put(KeyCode.DIVIDE, "/");
+        buttonMapping.put(KeyCode.PERIOD, ".");
+        buttonMapping.put(KeyCode.DECIMAL, ".");
+    }
+
+    // Find the button for a key as the key handler does, or null if the key is not mapped.
+    @Benchmark
+    public Object lookup() {
+        Object value = buttonMapping.get(code);
+        if (value == null) {
+            return null;
+        }
+        if (value.getClass().isArray()) {
+            return shift ? ((String[])value)[1] : ((String[])value)[0];
+        }
+        if (shift) {
+            return null;
+        }
+        return value;
+    }
+}
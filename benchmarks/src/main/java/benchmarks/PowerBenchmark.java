@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Power.pow compared with Math.pow, for integer powers computed directly and for cases that fall back to Math.pow.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PowerBenchmark {
+    // Power is in the unnamed package, so it is called through a constant handle as in Engine.
+    private static final MethodHandle POW = pow();
+
+    @Param({"12^5", "2^-10", "3^33", "1.5^7", "7^0.5"})
+    public String calculation;
+
+    private double base;
+    private double exponent;
+
+    @Setup
+    public void setup() {
+        int index = calculation.indexOf('^');
+        base = Double.parseDouble(calculation.substring(0, index));
+        exponent = Double.parseDouble(calculation.substring(index + 1));
+    }
+
+    @Benchmark
+    public double mathPow() {
+        return Math.pow(base, exponent);
+    }
+
+    @Benchmark
+    public double powerPow() throws Throwable {
+        return (double)POW.invokeExact(base, exponent);
+    }
+
+    private static MethodHandle pow() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("Power"), "pow", MethodType.methodType(double.class, double.class, double.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Calculations in precision mode, at a typical precision and at thousands of digits.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PrecisionBenchmark {
+    // DecimalMath is in the unnamed package, so it is called through constant handles as in Engine.
+    private static final MethodHandle CONTEXT = findStatic("context", MethodType.methodType(MathContext.class, int.class));
+    private static final MethodHandle EVALUATE = findStatic("evaluate", MethodType.methodType(BigDecimal.class, String.class, BigDecimal.class, BigDecimal.class, MathContext.class));
+
+    @Param({"50", "1000", "5000"})
+    public int precision;
+
+    @Param({"1/7", "3.7^100", "2^0.5", "1.0000001^123456.789"})
+    public String calculation;
+
+    private String operator;
+    private BigDecimal operandFirst;
+    private BigDecimal operandSecond;
+    private MathContext context;
+
+    @Setup
+    public void setup() throws Throwable {
+        int index = calculation.indexOf('/') >= 0 ? calculation.indexOf('/') : calculation.indexOf('^');
+        operator = calculation.substring(index, index + 1);
+        operandFirst = new BigDecimal(calculation.substring(0, index));
+        operandSecond = new BigDecimal(calculation.substring(index + 1));
+        context = (MathContext)CONTEXT.invokeExact(precision);
+    }
+
+    @Benchmark
+    public BigDecimal evaluate() throws Throwable {
+        return (BigDecimal)EVALUATE.invokeExact(operator, operandFirst, operandSecond, context);
+    }
+
+    private static MethodHandle findStatic(String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("DecimalMath"), name, type);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
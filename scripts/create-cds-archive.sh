@@ -0,0 +1,15 @@
+#!/bin/sh
+# Create a class data sharing archive of the classes loaded while the calculator starts, including the JavaFX classes, for fast-start.sh to use.
+# The calculator is started once in fast-start mode and exits after it accepts input. Requires JDK 13 or later.
+# JAVAFX_LIB is the lib directory of the JavaFX SDK, and CLASSES is the directory of the compiled classes and logo.png.
+set -e
+: "${JAVAFX_LIB:?Set JAVAFX_LIB to the lib directory of the JavaFX SDK}"
+CLASSES="${CLASSES:-out/production/Calculator}"
+BUILD="${BUILD:-build}"
+
+# Archived classes must come from a JAR file, not a directory.
+mkdir -p "$BUILD"
+jar --create --file "$BUILD/calculator.jar" -C "$CLASSES" .
+rm -f "$BUILD/calculator.jsa"
+java -XX:ArchiveClassesAtExit="$BUILD/calculator.jsa" -Dcalculator.fastStart=true -Dcalculator.startup=exit \
+    --module-path "$JAVAFX_LIB" --add-modules javafx.controls -cp "$BUILD/calculator.jar" Calculator
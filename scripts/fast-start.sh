@@ -0,0 +1,9 @@
+#!/bin/sh
+# Start the calculator in fast-start mode with the archive created by create-cds-archive.sh, passing any arguments to it.
+# If the archive does not match the JDK or the JAR file, the JVM starts without it.
+set -e
+: "${JAVAFX_LIB:?Set JAVAFX_LIB to the lib directory of the JavaFX SDK}"
+BUILD="${BUILD:-build}"
+
+exec java -XX:SharedArchiveFile="$BUILD/calculator.jsa" -Dcalculator.fastStart=true \
+    --module-path "$JAVAFX_LIB" --add-modules javafx.controls -cp "$BUILD/calculator.jar" Calculator "$@"
@@ -0,0 +1,9 @@
+// The kind of numbers that a calculator session calculates with.
+public enum ArithmeticMode {
+    // Doubles, with results rounded to hide binary roundoff error.
+    DOUBLE,
+    // Exact fractions, converted to decimals only for display.
+    EXACT,
+    // Decimals rounded to a chosen number of significant digits.
+    PRECISE,
+}
@@ -0,0 +1,130 @@
+// Array-in, array-out versions of the addition, subtraction, multiplication, and division in CalculatorEngine.evaluate, for whole columns of operands.
+// The arithmetic is done in simple counted loops over arrays with no branches or calls, which the JIT can compile to SIMD instructions.
+// Roundoff elimination for addition and subtraction is split into a scalar pass that finds each precision and a separate pass that applies the rounding,
+// which rounds every result with the same operations and restores the few that are not rounded afterward.
+// Scratch space is kept for each thread, so the methods may be called by any number of threads at once.
+public final class ArrayKernels {
+    // Number of elements processed per block, so that intermediate values stay in cache between passes.
+    static final int BLOCK_SIZE = 1024;
+    // Magnitude of the limits of long, to which Math.round clamps its results.
+    private static final double LONG_LIMIT = 0x1p63;
+    // Formatter and block arrays reused by all calls on the same thread.
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private ArrayKernels() {}
+
+    // Apply the operator to each pair of operands, giving the same results as CalculatorEngine.evaluate.
+    public static void apply(String operator, double[] operandsFirst, double[] operandsSecond, double[] results) {
+        switch (operator) {
+            case CalculatorEngine.PLUS_SYMBOL:
+                add(operandsFirst, operandsSecond, results);
+                break;
+            case CalculatorEngine.MINUS_SYMBOL:
+                subtract(operandsFirst, operandsSecond, results);
+                break;
+            case CalculatorEngine.MULTIPLY_SYMBOL:
+                multiply(operandsFirst, operandsSecond, results);
+                break;
+            case CalculatorEngine.DIVIDE_SYMBOL:
+                divide(operandsFirst, operandsSecond, results);
+                break;
+            default:
+                checkLengths(operandsFirst, operandsSecond, results);
+                DecimalFormatter formatter = SCRATCH.get().formatter;
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = CalculatorEngine.evaluate(operator, operandsFirst[i], operandsSecond[i], formatter);
+                }
+                break;
+        }
+    }
+
+    // Add each pair of operands and eliminate roundoff error as CalculatorEngine.evaluate does.
+    public static void add(double[] operandsFirst, double[] operandsSecond, double[] results) {
+        checkLengths(operandsFirst, operandsSecond, results);
+        Scratch scratch = SCRATCH.get();
+        for (int from = 0; from < results.length; from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, results.length);
+            for (int i = from; i < to; i++) {
+                results[i] = operandsFirst[i] + operandsSecond[i];
+            }
+            eliminateRoundoffError(operandsFirst, results, from, to, scratch);
+        }
+    }
+
+    // Subtract each pair of operands and eliminate roundoff error as CalculatorEngine.evaluate does.
+    public static void subtract(double[] operandsFirst, double[] operandsSecond, double[] results) {
+        checkLengths(operandsFirst, operandsSecond, results);
+        Scratch scratch = SCRATCH.get();
+        for (int from = 0; from < results.length; from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, results.length);
+            for (int i = from; i < to; i++) {
+                results[i] = operandsFirst[i] - operandsSecond[i];
+            }
+            eliminateRoundoffError(operandsFirst, results, from, to, scratch);
+        }
+    }
+
+    // Multiply each pair of operands.
+    public static void multiply(double[] operandsFirst, double[] operandsSecond, double[] results) {
+        checkLengths(operandsFirst, operandsSecond, results);
+        for (int i = 0; i < results.length; i++) {
+            results[i] = operandsFirst[i] * operandsSecond[i];
+        }
+    }
+
+    // Divide each pair of operands.
+    public static void divide(double[] operandsFirst, double[] operandsSecond, double[] results) {
+        checkLengths(operandsFirst, operandsSecond, results);
+        for (int i = 0; i < results.length; i++) {
+            results[i] = operandsFirst[i] / operandsSecond[i];
+        }
+    }
+
+    // Round the results in a block to the precision given by their first operands, skipping results that are zero or shown as errors.
+    private static void eliminateRoundoffError(double[] operandsFirst, double[] results, int from, int to, Scratch scratch) {
+        double[] scales = scratch.scales;
+        int[] skipped = scratch.skipped;
+        DecimalFormatter formatter = scratch.formatter;
+        // Find the scale of each result. Finding the precision needs the digits of the operand, so this pass is scalar.
+        // Results that are not rounded are given a scale of 1 and listed, to be restored after the rounding of the whole block.
+        int skippedCount = 0;
+        for (int i = from; i < to; i++) {
+            double result = results[i];
+            if (result != 0.0 && Double.isFinite(result) && (long)result != Long.MAX_VALUE && (long)result != Long.MIN_VALUE) {
+                int precision = formatter.trailingLength(operandsFirst[i]);
+                scales[i - from] = DecimalFormatter.POWERS_OF_TEN[precision <= CalculatorEngine.MAX_PRECISION ? precision : 0];
+            } else {
+                scales[i - from] = 1.0;
+                skipped[skippedCount++] = i;
+            }
+        }
+        // Round every result with the same operations, replacing each scale with its rounded result.
+        // Math.round is replaced by its definition, the floor of v + 1/2, as the floor of v plus 1 if the exact fraction v - floor(v) is at least 1/2,
+        // and its limits, so that the loop has no branches or conversions to long.
+        for (int i = from; i < to; i++) {
+            double scale = scales[i - from];
+            double v = results[i] * scale;
+            double floor = Math.floor(v);
+            // The fraction is exact except for tiny negative values, for which it rounds to 1 and the sum is still 0.
+            double rounded = floor + Math.min(Math.floor(2.0 * (v - floor)), 1.0);
+            scales[i - from] = Math.max(Math.min(rounded, LONG_LIMIT), -LONG_LIMIT) / scale;
+        }
+        for (int j = 0; j < skippedCount; j++) {
+            scales[skipped[j] - from] = results[skipped[j]];
+        }
+        System.arraycopy(scales, 0, results, from, to - from);
+    }
+
+    private static void checkLengths(double[] operandsFirst, double[] operandsSecond, double[] results) {
+        if (operandsSecond.length != operandsFirst.length || results.length != operandsFirst.length) {
+            throw new IllegalArgumentException("Operand and result arrays must have the same length");
+        }
+    }
+
+    // Per-thread state, holding the scales and skipped indices of one block.
+    private static final class Scratch {
+        final DecimalFormatter formatter = new DecimalFormatter();
+        final double[] scales = new double[BLOCK_SIZE];
+        final int[] skipped = new int[BLOCK_SIZE];
+    }
+}
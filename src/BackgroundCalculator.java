@@ -0,0 +1,105 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+
+import javafx.application.Platform;
+
+// Performs the actions of the buttons and keys on the engine in order, so that in precision mode, operating and solving do not stall the window.
+// Before such an action, the calculation is made on a snapshot of the engine on a background thread, and the action is performed once it arrives, reusing its result.
+// Actions made meanwhile wait in order. Each action is followed by an update of the display.
+// Used only on the JavaFX application thread.
+public class BackgroundCalculator {
+    // Name of the threads that make calculations, if they are not virtual.
+    static final String THREAD_NAME = "Calculator Solver";
+
+    private final CalculatorEngine engine;
+    private final DisplayRenderer renderer;
+    private final ExecutorService executor;
+    // Shows a preview of the result, whose calculation is cancelled while this calculates, if any.
+    private ResultPreview preview;
+
+    // Actions waiting for a calculation to arrive.
+    private final ArrayDeque<Runnable> actions = new ArrayDeque<>();
+    // Whether a calculation is in progress.
+    private boolean calculating;
+
+    public BackgroundCalculator(CalculatorEngine engine, DisplayRenderer renderer) {
+        this.engine = engine;
+        this.renderer = renderer;
+        executor = VirtualThreads.newExecutor(THREAD_NAME);
+    }
+
+    public void setPreview(ResultPreview preview) {
+        this.preview = preview;
+    }
+
+    // Perform an action that does not calculate, after any actions waiting.
+    public void perform(Runnable action) {
+        actions.add(action);
+        run();
+    }
+
+    // Operate with the specified operator, calculating first in the background if needed.
+    public void operate(String operator) {
+        actions.add(() -> calculateThen(engine.operateCalculates(), () -> engine.operate(operator)));
+        run();
+    }
+
+    // Solve, calculating first in the background if needed.
+    public void solve() {
+        actions.add(() -> calculateThen(true, engine::solve));
+        run();
+    }
+
+    // Perform the waiting actions until one starts a calculation.
+    private void run() {
+        while (!calculating && !actions.isEmpty()) {
+            actions.poll().run();
+        }
+        renderer.markDirty();
+    }
+
+    // Perform an action that may calculate, once a calculation in precision mode that has not already been made is made in the background.
+    private void calculateThen(boolean calculates, Runnable action) {
+        if (!calculates || !engine.needsPreciseCalculation()) {
+            action.run();
+            return;
+        }
+        CalculatorEngine snapshot = engine.snapshot();
+        calculating = true;
+        if (preview != null) {
+            preview.cancel();
+        }
+        executor.submit(() -> {
+            try {
+                snapshot.solve();
+            }
+            catch (CancellationException e) {
+                // Nothing more is performed once closed. Otherwise the thread was interrupted for another reason, and the calculation is made again.
+                Platform.runLater(() -> {
+                    if (!executor.isShutdown()) {
+                        calculating = false;
+                        actions.addFirst(() -> calculateThen(true, action));
+                        run();
+                    }
+                });
+                return;
+            }
+            catch (RuntimeException e) {
+                // Perform the action anyway, which makes the calculation again and reports the error as if there were no background calculation.
+            }
+            Platform.runLater(() -> {
+                engine.reusePreciseCalculation(snapshot);
+                calculating = false;
+                action.run();
+                run();
+            });
+        });
+    }
+
+    // Cancel any calculation in progress and discard the actions waiting.
+    public void close() {
+        executor.shutdownNow();
+        actions.clear();
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Evaluates a file of calculations, one "operand operator operand" per line, and writes one result per line formatted as calculate() formats it.
+// The input is memory-mapped and parsed directly from its bytes, and the output is written through a fixed-size buffer, so memory use does not grow with the file.
+// An instance is not thread-safe.
+public class BatchEvaluator {
+    // Number of bytes of the input mapped into memory at a time. Lines may not be longer than this.
+    static final long MAP_WINDOW_SIZE = 1L << 28;
+    // Number of bytes of output collected before they are written.
+    static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    // Largest significand that converts to a double without rounding.
+    static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+    // Largest significand that can have another digit appended without overflowing.
+    static final long MAX_APPENDABLE_SIGNIFICAND = (Long.MAX_VALUE - 9) / 10;
+
+    private final DecimalFormatter formatter = new DecimalFormatter();
+    private final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+    // Position in the current line, advanced as it is parsed.
+    private int position;
+
+    // Evaluate the calculations in the input file and write the results to the output file, or to standard output if the output is "-".
+    // Returns the number of lines evaluated.
+    public long evaluate(Path input, Path output) throws IOException {
+        try (FileChannel channelInput = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (output.toString().equals("-")) {
+                WritableByteChannel channelOutput = Channels.newChannel(new FileOutputStream(FileDescriptor.out));
+                return evaluate(channelInput, channelOutput);
+            }
+            try (FileChannel channelOutput = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                return evaluate(channelInput, channelOutput);
+            }
+        }
+    }
+
+    // Evaluate the calculations in the input channel and write the results to the output channel.
+    // Returns the number of lines evaluated.
+    public long evaluate(FileChannel input, WritableByteChannel channelOutput) throws IOException {
+        long size = input.size();
+        long lines = 0;
+        long windowStart = 0;
+        output.clear();
+        while (windowStart < size) {
+            long windowSize = Math.min(MAP_WINDOW_SIZE, size - windowStart);
+            boolean lastWindow = windowStart + windowSize == size;
+            MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            int limit = (int)windowSize;
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    evaluateLine(window, lineStart, i, channelOutput);
+                    lines++;
+                    lineStart = i + 1;
+                }
+            }
+            // A final line without a newline is evaluated at the end of the file, and otherwise continues in the next window.
+            if (lastWindow) {
+                if (lineStart < limit) {
+                    evaluateLine(window, lineStart, limit, channelOutput);
+                    lines++;
+                }
+                lineStart = limit;
+            }
+            else if (lineStart == 0) {
+                throw new IOException("Line longer than " + MAP_WINDOW_SIZE + " bytes at offset " + windowStart);
+            }
+            windowStart += lineStart;
+        }
+        flush(channelOutput);
+        return lines;
+    }
+
+    // Evaluate the calculation in the bytes from start (inclusive) to end (exclusive), and add the result and a newline to the output.
+    // Blank lines produce blank lines so that results stay aligned with their calculations.
+    public void evaluateLine(ByteBuffer bytes, int start, int end, WritableByteChannel channelOutput) throws IOException {
+        if (end > start && bytes.get(end - 1) == '\r') {
+            end--;
+        }
+        position = start;
+        skipWhitespace(bytes, end);
+        if (position < end) {
+            double operandFirst = parseOperand(bytes, end);
+            skipWhitespace(bytes, end);
+            String operator = position < end ? operator(bytes.get(position)) : CalculatorEngine.DEFAULT_OPERATION;
+            if (!operator.isEmpty()) {
+                position++;
+            }
+            skipWhitespace(bytes, end);
+            double operandSecond = parseOperand(bytes, end);
+            writeResult(CalculatorEngine.evaluate(operator, operandFirst, operandSecond, formatter), channelOutput);
+        }
+        if (!output.hasRemaining()) {
+            flush(channelOutput);
+        }
+        output.put((byte)'\n');
+    }
+
+    // Write all buffered output.
+    public void flush(WritableByteChannel channelOutput) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channelOutput.write(output);
+        }
+        output.clear();
+    }
+
+    // Add the formatted result to the output.
+    private void writeResult(double result, WritableByteChannel channelOutput) throws IOException {
+        int length = formatter.formatResult(result);
+        if (output.remaining() < length) {
+            flush(channelOutput);
+        }
+        char[] chars = formatter.chars();
+        for (int i = 0; i < length; i++) {
+            output.put((byte)chars[i]);
+        }
+    }
+
+    // Parse the operand at the current position, which extends up to the next whitespace or operator, or 0 if it is not a number.
+    // A sign is part of the operand if it comes first, and an exponent's sign is part of the operand if it follows an "e" or "E".
+    private double parseOperand(ByteBuffer bytes, int end) {
+        int start = position;
+        while (position < end) {
+            byte b = bytes.get(position);
+            boolean sign = b == '+' || b == '-';
+            if (b == ' ' || b == '\t' || (!sign && !operator(b).isEmpty())) {
+                break;
+            }
+            if (sign && position > start && !(bytes.get(position - 1) == 'e' || bytes.get(position - 1) == 'E')) {
+                break;
+            }
+            position++;
+        }
+        return parseNumber(bytes, start, position);
+    }
+
+    // Parse a decimal number without creating a String when its significand and exponent are small enough to convert exactly.
+    private double parseNumber(ByteBuffer bytes, int start, int end) {
+        if (start == end) {
+            return 0.0;
+        }
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+            negative = bytes.get(i) == '-';
+            i++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean decimal = false;
+        boolean exact = true;
+        for (; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (significand > MAX_APPENDABLE_SIGNIFICAND) {
+                    exact = false;
+                } else {
+                    significand = significand * 10 + (b - '0');
+                }
+                if (decimal) {
+                    exponent--;
+                }
+            }
+            else if (b == '.' && !decimal) {
+                decimal = true;
+            }
+            else {
+                break;
+            }
+        }
+        if (i < end && (bytes.get(i) == 'e' || bytes.get(i) == 'E')) {
+            i++;
+            boolean exponentNegative = false;
+            if (i < end && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+                exponentNegative = bytes.get(i) == '-';
+                i++;
+            }
+            int exponentDigits = 0;
+            int exponentValue = 0;
+            for (; i < end && bytes.get(i) >= '0' && bytes.get(i) <= '9'; i++) {
+                exponentDigits++;
+                if (exponentValue < 100_000) {
+                    exponentValue = exponentValue * 10 + (bytes.get(i) - '0');
+                }
+            }
+            if (exponentDigits == 0) {
+                exact = false;
+            }
+            exponent += exponentNegative ? -exponentValue : exponentValue;
+        }
+        if (i == end && digits > 0 && exact && significand <= MAX_EXACT_SIGNIFICAND) {
+            double value = significand;
+            if (exponent != 0 && significand != 0) {
+                if (exponent < 0 && -exponent < DecimalFormatter.POWERS_OF_TEN.length) {
+                    value /= DecimalFormatter.POWERS_OF_TEN[-exponent];
+                } else if (exponent > 0 && exponent < DecimalFormatter.POWERS_OF_TEN.length) {
+                    value *= DecimalFormatter.POWERS_OF_TEN[exponent];
+                } else {
+                    return parseText(bytes, start, end);
+                }
+            }
+            return negative ? -value : value;
+        }
+        return parseText(bytes, start, end);
+    }
+
+    // Parse a number with Double.parseDouble, or 0 if it is not a number.
+    private static double parseText(ByteBuffer bytes, int start, int end) {
+        byte[] text = new byte[end - start];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = bytes.get(start + i);
+        }
+        try {
+            return Double.parseDouble(new String(text, StandardCharsets.ISO_8859_1));
+        }
+        catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private void skipWhitespace(ByteBuffer bytes, int end) {
+        while (position < end && (bytes.get(position) == ' ' || bytes.get(position) == '\t')) {
+            position++;
+        }
+    }
+
+    // Get the operator symbol for a byte, or an empty string if it is not an operator.
+    private static String operator(byte b) {
+        switch (b) {
+            case '+':
+                return CalculatorEngine.PLUS_SYMBOL;
+            case '-':
+                return CalculatorEngine.MINUS_SYMBOL;
+            case '*':
+                return CalculatorEngine.MULTIPLY_SYMBOL;
+            case '/':
+                return CalculatorEngine.DIVIDE_SYMBOL;
+            case '^':
+                return CalculatorEngine.POWER_SYMBOL;
+            default:
+                return CalculatorEngine.DEFAULT_OPERATION;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BatchEvaluator <input file> <output file or ->");
+            System.exit(1);
+        }
+        new BatchEvaluator().evaluate(Paths.get(args[0]), Paths.get(args[1]));
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+
+// Serves calculations to other processes on the same computer over a loopback socket, with the same results and formatting as calculate() and batch mode.
+// Clients send calculations as lines in the batch format and receive one result line for each, in order, and may send any number of lines without waiting for results.
+// A last line without a newline is answered once the client shuts down its output.
+// Each connection is handled on its own virtual thread if the runtime has them. All complete lines received by one read are evaluated together
+// and their results are sent with one write, so calculations that arrive close together are answered in one batch.
+public class CalculationServer implements Closeable {
+    // Port listened on if none is specified.
+    public static final int DEFAULT_PORT = 7355;
+    // Number of bytes of input read at a time for each connection. Lines may not be longer than this.
+    static final int INPUT_BUFFER_SIZE = 1 << 16;
+    // Name of the threads that handle connections, if they are not virtual.
+    static final String THREAD_NAME = "Calculator Server";
+
+    private final ServerSocketChannel server;
+    private final ExecutorService executor;
+
+    // Listen on the specified port of the loopback address, or on any free port if it is 0.
+    public CalculationServer(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        executor = VirtualThreads.newExecutor(THREAD_NAME);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress)server.getLocalAddress()).getPort();
+    }
+
+    // Accept connections until the server is closed.
+    public void run() throws IOException {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                executor.execute(() -> serve(channel));
+            }
+        }
+        catch (ClosedChannelException e) {
+            // The server was closed.
+        }
+    }
+
+    // Evaluate the calculations received on a connection until the client closes it.
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            BatchEvaluator evaluator = new BatchEvaluator();
+            ByteBuffer input = ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE);
+            // Position up to which the input has been searched for the end of a line.
+            int searched = 0;
+            while (true) {
+                // A final line without a newline is evaluated once the client stops sending, as at the end of a file in batch mode.
+                if (channel.read(input) < 0) {
+                    if (input.position() > 0) {
+                        evaluator.evaluateLine(input, 0, input.position(), channel);
+                        evaluator.flush(channel);
+                    }
+                    break;
+                }
+                int end = input.position();
+                int lineStart = 0;
+                for (int i = searched; i < end; i++) {
+                    if (input.get(i) == '\n') {
+                        evaluator.evaluateLine(input, lineStart, i, channel);
+                        lineStart = i + 1;
+                    }
+                }
+                evaluator.flush(channel);
+                if (lineStart == 0 && !input.hasRemaining()) {
+                    throw new IOException("Line longer than " + INPUT_BUFFER_SIZE + " bytes");
+                }
+                // Keep the incomplete line at the end for the next read.
+                input.flip().position(lineStart);
+                input.compact();
+                searched = input.position();
+            }
+        }
+        catch (IOException e) {
+            // The connection was reset or sent a line that is too long, and is closed.
+        }
+    }
+
+    // Stop accepting connections and close those that are open.
+    @Override
+    public void close() throws IOException {
+        server.close();
+        executor.shutdownNow();
+    }
+}
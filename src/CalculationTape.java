@@ -0,0 +1,101 @@
+// The most recent calculations of a session, held in a fixed number of slots of primitive arrays that are reused once full.
+// Each entry holds the operands, operator, and unrounded result of one calculation, so it can be shown again with DecimalFormatter.formatResult().
+// A calculation solved repeatedly at once is held as one entry with the number of repetitions, the first operand of the first solve, and the result of the last.
+// Not thread-safe.
+public class CalculationTape {
+    // Kinds of calculations.
+    public static final byte KIND_INTERMEDIATE = 0;
+    public static final byte KIND_SOLVE = 1;
+    public static final byte KIND_REPEAT = 2;
+
+    private final long[] times;
+    private final byte[] kinds;
+    private final char[] operators;
+    private final double[] operandsFirst;
+    private final double[] operandsSecond;
+    private final double[] results;
+    private final long[] repetitions;
+    // Position of the next entry to be written, and the number of entries held.
+    private int next;
+    private int size;
+
+    public CalculationTape(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        times = new long[capacity];
+        kinds = new byte[capacity];
+        operators = new char[capacity];
+        operandsFirst = new double[capacity];
+        operandsSecond = new double[capacity];
+        results = new double[capacity];
+        repetitions = new long[capacity];
+    }
+
+    // Add a calculation solved the specified number of times, replacing the oldest one if the tape is full.
+    public void record(long time, byte kind, char operator, double operandFirst, double operandSecond, double result, long repetitionCount) {
+        times[next] = time;
+        kinds[next] = kind;
+        operators[next] = operator;
+        operandsFirst[next] = operandFirst;
+        operandsSecond[next] = operandSecond;
+        results[next] = result;
+        repetitions[next] = repetitionCount;
+        next = next + 1 == times.length ? 0 : next + 1;
+        if (size < times.length) {
+            size++;
+        }
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Remove all calculations.
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    // Get properties of a calculation, with index 0 being the oldest one held.
+    public long getTime(int index) {
+        return times[slot(index)];
+    }
+
+    public byte getKind(int index) {
+        return kinds[slot(index)];
+    }
+
+    public char getOperator(int index) {
+        return operators[slot(index)];
+    }
+
+    public double getOperandFirst(int index) {
+        return operandsFirst[slot(index)];
+    }
+
+    public double getOperandSecond(int index) {
+        return operandsSecond[slot(index)];
+    }
+
+    public double getResult(int index) {
+        return results[slot(index)];
+    }
+
+    public long getRepetitions(int index) {
+        return repetitions[slot(index)];
+    }
+
+    // Convert an index counted from the oldest entry into a position in the arrays.
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int slot = next - size + index;
+        return slot < 0 ? slot + times.length : slot;
+    }
+}
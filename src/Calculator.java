@@ -1,51 +1,67 @@
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.EventHandler;
+import javafx.geometry.HPos;
 import javafx.geometry.Pos;
+import javafx.geometry.VPos;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
+import javafx.scene.input.Clipboard;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.RowConstraints;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 public class Calculator extends Application {
     static final String PROGRAM_NAME = "Calculator";
+    // Window title while calculating exactly with fractions.
+    static final String PROGRAM_NAME_EXACT = PROGRAM_NAME + " (Exact)";
+    // System property setting the number of significant digits in precision mode.
+    static final String PRECISION_PROPERTY = "calculator.precision";
     static final String FILENAME_LOGO = "logo.png";
-
-    // Default text displayed at the top.
-    static final String DEFAULT_DISPLAY_TEXT = "0";
-    // Default text for the stored operand.
-    static final String DEFAULT_OPERAND_STORED = "";
-    // Default text for the current operand.
-    static final String DEFAULT_OPERAND_CURRENT = "";
-    // Default text for the repeated operand.
-    static final String DEFAULT_OPERAND_REPEATED = "";
-    // Default operation value.
-    static final String DEFAULT_OPERATION = "";
-
-    // The stored operand to be operated on.
-    static String operandStored = DEFAULT_OPERAND_STORED;
-    // The current operand being entered by the user.
-    static String operandCurrent = DEFAULT_OPERAND_CURRENT;
-    // The operand used by repeated calculations when no explicitly operands are input.
-    static String operandRepeated = DEFAULT_OPERAND_REPEATED;
-    // The selected operation.
-    static String operation = DEFAULT_OPERATION;
-    // The previous operation, which is stored after a solve.
-    static String operationRepeated = DEFAULT_OPERATION;
-
-    // Number of digits to which results are rounded to.
-    static final int MAX_PRECISION = 15;
+    // File in the home directory to which calculations and the session are saved.
+    static final String FILENAME_JOURNAL = ".calculator-journal";
+    // System property setting the path of the journal instead of the file in the home directory.
+    static final String JOURNAL_PROPERTY = "calculator.journal";
+    // Command line option for evaluating a file of calculations instead of showing a window.
+    static final String BATCH_OPTION = "--batch";
+    // Command line option for serving calculations to other processes instead of showing a window.
+    static final String SERVER_OPTION = "--server";
+    // System property that, when "true", shows the window before creating the buttons and loads the icon in the background.
+    static final String FAST_START_PROPERTY = "calculator.fastStart";
+    // System property that, when "true", prints the time from launch until the first frame and until input is accepted, or also exits when "exit".
+    static final String STARTUP_PROPERTY = "calculator.startup";
+
+    // The calculator session driven by this window.
+    private final CalculatorEngine engine = new CalculatorEngine();
+    // Updates the display from the engine once per frame.
+    private DisplayRenderer renderer;
+    // Journal of calculations and the session, or null if it could not be opened.
+    private TapeJournal journal;
+    // Shows what solving would display as operands are entered.
+    private ResultPreview preview;
+    // Performs the actions of the buttons and keys.
+    private BackgroundCalculator background;
+    // Measures the time until the first frame and until input is accepted, or null if not measured.
+    private final StartupTimer startupTimer = StartupTimer.fromProperty(STARTUP_PROPERTY);
 
     // Layout properties.
     static final int NUMBER_ROWS = 6;
@@ -54,29 +70,41 @@ public class Calculator extends Application {
     static final int FONT_SIZE_DEFAULT = 25;
     static final int FONT_SIZE_OPERATORS = 25;
     static final int FONT_SIZE_DISPLAY = 50;
+    static final int FONT_SIZE_PREVIEW = 18;
+    static final int FONT_SIZE_STATS = 11;
+    // Interval at which the stats overlay is updated while shown.
+    static final int STATS_INTERVAL_MILLIS = 500;
 
     // Operator symbols.
-    static final String PLUS_SYMBOL = "+";
     static final String PLUS_SYMBOL_DISPLAY = Character.toString('\u002b');
-    static final String MINUS_SYMBOL = "-";
-    static final String MINUS_SYMBOL_DISPLAY = Character.toString('\u2212');
-    static final String MULTIPLY_SYMBOL = "*";
-    static final String MULTIPLY_SYMBOL_DISPLAY = Character.toString('\u00d7');
-    static final String DIVIDE_SYMBOL = "/";
-    static final String DIVIDE_SYMBOL_DISPLAY = Character.toString('\u00f7');
-    static final String POWER_SYMBOL = "^";
+    static final String MINUS_SYMBOL_DISPLAY = CalculatorEngine.MINUS_SYMBOL_DISPLAY;
+    static final String MULTIPLY_SYMBOL_DISPLAY = CalculatorEngine.MULTIPLY_SYMBOL_DISPLAY;
+    static final String DIVIDE_SYMBOL_DISPLAY = CalculatorEngine.DIVIDE_SYMBOL_DISPLAY;
     static final String POWER_SYMBOL_DISPLAY = "^";
-    static final String DECIMAL_SYMBOL = ".";
-    static final String INVERT_SYMBOL = Character.toString('\u00b1');
-    static final String RANDOM_SYMBOL = "?";
-    static final String SOLVE_SYMBOL = "=";
+    static final String INVERT_SYMBOL = CalculatorEngine.INVERT_SYMBOL;
+    static final String RANDOM_SYMBOL = CalculatorEngine.RANDOM_SYMBOL;
+    static final String SOLVE_SYMBOL = CalculatorEngine.SOLVE_SYMBOL;
     static final String CLEAR_SYMBOL = "C";
-    // Error messages.
-    static final String OVERFLOW_MESSAGE = "Overflow";
-    static final String UNDERFLOW_MESSAGE = "Underflow";
 
     @Override
     public void start(Stage stage) {
+        // Restore the previous session.
+        try {
+            String path = System.getProperty(JOURNAL_PROPERTY);
+            journal = TapeJournal.open(path != null ? Paths.get(path) : Paths.get(System.getProperty("user.home"), FILENAME_JOURNAL));
+            engine.attachJournal(journal);
+        }
+        catch (IOException | InvalidPathException e) {
+            System.err.println("Could not open journal: " + e.getMessage());
+        }
+        try {
+            engine.setPrecision(Integer.getInteger(PRECISION_PROPERTY, CalculatorEngine.DEFAULT_DECIMAL_PRECISION));
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Could not set precision: " + e.getMessage());
+            engine.setPrecision(CalculatorEngine.DEFAULT_DECIMAL_PRECISION);
+        }
+
         // Create layout.
         GridPane root = new GridPane();
         root.setVgap(5);
@@ -97,22 +125,85 @@ public class Calculator extends Application {
         root.setStyle(String.format("-fx-font-size: %dpx", FONT_SIZE_DEFAULT));
 
         // Create text display.
-        Label display = new Label(DEFAULT_DISPLAY_TEXT);
+        Label display = new Label(engine.getDisplayText());
         display.setFont(Font.font("", FontWeight.NORMAL, FONT_SIZE_DISPLAY));
         display.setAlignment(Pos.BASELINE_RIGHT);
         display.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         GridPane.setConstraints(display, 0, 0, NUMBER_COLUMNS, 1);
         root.getChildren().add(display);
+        renderer = new DisplayRenderer(display, engine);
+
+        // Create scene.
+        Scene scene = new Scene(root);
+        if (startupTimer != null) {
+            startupTimer.attach(scene);
+        }
+
+        // Show only the display at first in fast-start mode, and create the buttons and key handling after the first frame.
+        // The icon is then loaded in the background.
+        boolean fastStart = Boolean.getBoolean(FAST_START_PROPERTY);
+        if (!fastStart) {
+            createControls(stage, scene, root);
+        }
+
+        // Create window.
+        stage.setScene(scene);
+        stage.setTitle(PROGRAM_NAME);
+        if (fastStart) {
+            stage.getIcons().add(new Image(getClass().getResource(FILENAME_LOGO).toExternalForm(), true));
+            scene.addPostLayoutPulseListener(new Runnable() {
+                @Override
+                public void run() {
+                    // Create the controls after the pulse that shows the display, so that the first frame is drawn without them.
+                    scene.removePostLayoutPulseListener(this);
+                    Platform.runLater(() -> createControls(stage, scene, root));
+                }
+            });
+            stage.show();
+        }
+        else {
+            stage.getIcons().add(new Image(getClass().getResourceAsStream(FILENAME_LOGO)));
+            stage.show();
+        }
+    }
+
+    // Create the buttons, preview, and stats overlay, and handle key events, after which the calculator accepts input.
+    private void createControls(Stage stage, Scene scene, GridPane root) {
+        // Create preview of the result above the display.
+        Label displayPreview = new Label();
+        displayPreview.setFont(Font.font("", FontWeight.NORMAL, FONT_SIZE_PREVIEW));
+        displayPreview.setTextFill(Color.GRAY);
+        GridPane.setConstraints(displayPreview, 0, 0, NUMBER_COLUMNS, 1, HPos.RIGHT, VPos.TOP);
+        root.getChildren().add(displayPreview);
+        preview = new ResultPreview(displayPreview, engine);
+        renderer.setPreview(preview);
+
+        // Perform the actions of the buttons in order, calculating in the background in precision mode.
+        background = new BackgroundCalculator(engine, renderer);
+        background.setPreview(preview);
+
+        // Create overlay of latency statistics, hidden until toggled.
+        Label statsOverlay = new Label();
+        statsOverlay.setFont(Font.font("Monospaced", FONT_SIZE_STATS));
+        statsOverlay.setStyle("-fx-background-color: rgba(255, 255, 255, 0.9)");
+        statsOverlay.setAlignment(Pos.TOP_LEFT);
+        statsOverlay.setMinSize(0, 0);
+        statsOverlay.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+        statsOverlay.setMouseTransparent(true);
+        statsOverlay.setVisible(false);
+        GridPane.setConstraints(statsOverlay, 0, 0, NUMBER_COLUMNS, NUMBER_ROWS);
+        Timeline statsTimeline = new Timeline(new KeyFrame(Duration.millis(STATS_INTERVAL_MILLIS), event -> statsOverlay.setText(Instrumentation.summary())));
+        statsTimeline.setCycleCount(Animation.INDEFINITE);
+        if (Instrumentation.ENABLED) {
+            Instrumentation.register();
+        }
 
         // Create digit buttons.
         Button[] buttonsDigit = new Button[10];
         for (int i = 0; i < buttonsDigit.length; i++) {
             String nameButton = String.valueOf(i);
             Button button = new Button(nameButton);
-            button.setOnAction(event -> {
-                enter(nameButton);
-                display.setText(getDisplayText());
-            });
+            button.setOnAction(event -> background.perform(() -> engine.enter(nameButton)));
             button.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
             button.setFocusTraversable(false);
             buttonsDigit[i] = button;
@@ -125,11 +216,8 @@ public class Calculator extends Application {
         }
 
         // Create decimal point button.
-        Button buttonDecimal = new Button(DECIMAL_SYMBOL);
-        buttonDecimal.setOnAction(event -> {
-            enter(buttonDecimal.getText());
-            display.setText(getDisplayText());
-        });
+        Button buttonDecimal = new Button(CalculatorEngine.DECIMAL_SYMBOL);
+        buttonDecimal.setOnAction(event -> background.perform(() -> engine.enter(buttonDecimal.getText())));
         buttonDecimal.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         buttonDecimal.setFocusTraversable(false);
         GridPane.setConstraints(buttonDecimal, 2, NUMBER_ROWS-1);
@@ -137,10 +225,7 @@ public class Calculator extends Application {
 
         // Create random number generator button.
         Button buttonRandom = new Button(RANDOM_SYMBOL);
-        buttonRandom.setOnAction(event -> {
-            random();
-            display.setText(getDisplayText());
-        });
+        buttonRandom.setOnAction(event -> background.perform(engine::random));
         buttonRandom.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         buttonRandom.setFocusTraversable(false);
         GridPane.setConstraints(buttonRandom, 0, NUMBER_ROWS-1);
@@ -148,10 +233,7 @@ public class Calculator extends Application {
 
         // Create solve button.
         Button buttonSolve = new Button(SOLVE_SYMBOL);
-        buttonSolve.setOnAction(event -> {
-            solve();
-            display.setText(getDisplayText());
-        });
+        buttonSolve.setOnAction(event -> background.solve());
         buttonSolve.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         buttonSolve.setFocusTraversable(false);
         buttonSolve.setFont(Font.font("", FontWeight.NORMAL, FONT_SIZE_OPERATORS));
@@ -160,20 +242,17 @@ public class Calculator extends Application {
 
         // Create operator buttons.
         LinkedHashMap<String, String> OPERATOR_SYMBOLS = new LinkedHashMap<>();
-        OPERATOR_SYMBOLS.put(PLUS_SYMBOL, PLUS_SYMBOL_DISPLAY);
-        OPERATOR_SYMBOLS.put(MINUS_SYMBOL, MINUS_SYMBOL_DISPLAY);
-        OPERATOR_SYMBOLS.put(MULTIPLY_SYMBOL, MULTIPLY_SYMBOL_DISPLAY);
-        OPERATOR_SYMBOLS.put(DIVIDE_SYMBOL, DIVIDE_SYMBOL_DISPLAY);
-        OPERATOR_SYMBOLS.put(POWER_SYMBOL, POWER_SYMBOL_DISPLAY);
+        OPERATOR_SYMBOLS.put(CalculatorEngine.PLUS_SYMBOL, PLUS_SYMBOL_DISPLAY);
+        OPERATOR_SYMBOLS.put(CalculatorEngine.MINUS_SYMBOL, MINUS_SYMBOL_DISPLAY);
+        OPERATOR_SYMBOLS.put(CalculatorEngine.MULTIPLY_SYMBOL, MULTIPLY_SYMBOL_DISPLAY);
+        OPERATOR_SYMBOLS.put(CalculatorEngine.DIVIDE_SYMBOL, DIVIDE_SYMBOL_DISPLAY);
+        OPERATOR_SYMBOLS.put(CalculatorEngine.POWER_SYMBOL, POWER_SYMBOL_DISPLAY);
         Button[] buttonsOperator = new Button[OPERATOR_SYMBOLS.size()];
         for (int i = 0; i < OPERATOR_SYMBOLS.size(); i++) {
             String operator = (String)(OPERATOR_SYMBOLS.keySet().toArray()[i]);
             String name = OPERATOR_SYMBOLS.get(operator);
             Button button = new Button(name);
-            button.setOnAction(event -> {
-                operate(operator);
-                display.setText(getDisplayText());
-            });
+            button.setOnAction(event -> background.operate(operator));
             button.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
             button.setFocusTraversable(false);
             button.setFont(Font.font("", FontWeight.NORMAL, FONT_SIZE_OPERATORS));
@@ -186,17 +265,11 @@ public class Calculator extends Application {
 
         // Create backspace button.
         Button buttonBackspace = new Button();
-        buttonBackspace.setOnAction(event -> {
-            backspace();
-            display.setText(getDisplayText());
-        });
+        buttonBackspace.setOnAction(event -> background.perform(engine::backspace));
 
         // Create clear button.
         Button buttonClear = new Button(CLEAR_SYMBOL);
-        buttonClear.setOnAction(event -> {
-            clear();
-            display.setText(getDisplayText());
-        });
+        buttonClear.setOnAction(event -> background.perform(engine::clear));
         buttonClear.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         buttonClear.setFocusTraversable(false);
         GridPane.setConstraints(buttonClear, 0, 1);
@@ -204,17 +277,16 @@ public class Calculator extends Application {
 
         // Create invert sign button.
         Button buttonInvert = new Button(INVERT_SYMBOL);
-        buttonInvert.setOnAction(event -> {
-            invert();
-            display.setText(getDisplayText());
-        });
+        buttonInvert.setOnAction(event -> background.perform(engine::invert));
         buttonInvert.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         buttonInvert.setFocusTraversable(false);
         GridPane.setConstraints(buttonInvert, 1, 1);
         root.getChildren().add(buttonInvert);
 
-        // Create scene.
-        Scene scene = new Scene(root);// Define key-button mappings. Each value is either a Button or a 2-length array of Buttons, where the first Button is the default and the second Button is the button to use if Shift is used with the key.
+        // Add the stats overlay last, so that it is drawn over the buttons.
+        root.getChildren().add(statsOverlay);
+
+        // Define key-button mappings. Each value is either a Button or a 2-length array of Buttons, where the first Button is the default and the second Button is the button to use if Shift is used with the key.
         HashMap<KeyCode, Object> buttonMapping = new HashMap<>();
         buttonMapping.put(KeyCode.ENTER, buttonSolve);
         buttonMapping.put(KeyCode.ESCAPE, buttonClear);
@@ -251,6 +323,39 @@ public class Calculator extends Application {
 
         // Create event handler for key events.
         EventHandler<KeyEvent> handlerKey = event -> {
+            // Paste the clipboard into the calculator in one pass, updating the display once.
+            if (event.getCode() == KeyCode.V && event.isShortcutDown()) {
+                if (event.getEventType() == KeyEvent.KEY_PRESSED && Clipboard.getSystemClipboard().hasString()) {
+                    String text = Clipboard.getSystemClipboard().getString();
+                    background.perform(() -> engine.paste(text));
+                }
+                return;
+            }
+            // Toggle calculating exactly with fractions or to a number of digits, which applies from the next calculation.
+            if ((event.getCode() == KeyCode.E || event.getCode() == KeyCode.P) && event.isShortcutDown()) {
+                if (event.getEventType() == KeyEvent.KEY_PRESSED) {
+                    ArithmeticMode mode = event.getCode() == KeyCode.E ? ArithmeticMode.EXACT : ArithmeticMode.PRECISE;
+                    background.perform(() -> {
+                        engine.setArithmeticMode(engine.getArithmeticMode() == mode ? ArithmeticMode.DOUBLE : mode);
+                        stage.setTitle(title());
+                    });
+                }
+                return;
+            }
+            // Toggle the overlay of latency statistics.
+            if (event.getCode() == KeyCode.S && event.isShortcutDown() && event.isShiftDown()) {
+                if (event.getEventType() == KeyEvent.KEY_PRESSED) {
+                    statsOverlay.setVisible(!statsOverlay.isVisible());
+                    if (statsOverlay.isVisible()) {
+                        statsOverlay.setText(Instrumentation.summary());
+                        statsTimeline.play();
+                    }
+                    else {
+                        statsTimeline.stop();
+                    }
+                }
+                return;
+            }
             Object value = buttonMapping.get(event.getCode());
             if (value == null) {
                 return;
@@ -277,211 +382,68 @@ public class Calculator extends Application {
             }
         };
 
-        // Set handler to key events..
-        scene.setOnKeyPressed(handlerKey);
-        scene.setOnKeyReleased(handlerKey);
+        // Measure the latency from each key event to the display showing its result, if instrumentation is enabled.
+        EventHandler<KeyEvent> handlerKeyMeasured = !Instrumentation.ENABLED ? handlerKey : event -> {
+            renderer.beginKey(System.nanoTime());
+            handlerKey.handle(event);
+            renderer.endKey();
+        };
 
-        // Create window.
-        stage.setScene(scene);
-        stage.setTitle(PROGRAM_NAME);
-        stage.getIcons().add(new Image(getClass().getResourceAsStream(FILENAME_LOGO)));
-        stage.show();
-    }
+        // Set handler to key events..
+        scene.setOnKeyPressed(handlerKeyMeasured);
+        scene.setOnKeyReleased(handlerKeyMeasured);
 
-    public static void main(String[] args) {
-        launch();
-    }
+        // Measure display latency in every pulse.
+        renderer.attach(scene);
 
-    // Enter the specified character into the current operand.
-    private void enter(String text) {
-        // Only add the character if it is alphanumeric or is a decimal point.
-        if (Character.isLetterOrDigit(text.charAt(0)) || (text.equals(DECIMAL_SYMBOL) && !operandCurrent.contains(DECIMAL_SYMBOL))) {
-            // Do not add the character if it is a zero and the current operand is "0".
-            if (!(text.equals("0") && operandCurrent.equals("0"))) {
-                // Clear if this an operation was just completed and is not part of an intermediate operation.
-                if (!operandStored.isEmpty() && operation.isEmpty()) {
-                    clear();
-                }
-                // If the operand only contains "0", remove it.
-                if (operandCurrent.equals("0")) {
-                    operandCurrent = DEFAULT_OPERAND_CURRENT;
-                }
-                operandCurrent += text;
-            }
+        if (startupTimer != null) {
+            startupTimer.markReady();
         }
     }
 
-    // Remove the last character from the current operand.
-    private void backspace() {
-        switch (operandCurrent.length()) {
-            case 0:
-                break;
-            case 1:
-                operandCurrent = DEFAULT_OPERAND_CURRENT;
-                break;
+    // Get the window title, which shows the arithmetic mode.
+    private String title() {
+        switch (engine.getArithmeticMode()) {
+            case EXACT:
+                return PROGRAM_NAME_EXACT;
+            case PRECISE:
+                return PROGRAM_NAME + " (" + engine.getPrecision() + " Digits)";
             default:
-                operandCurrent = operandCurrent.substring(0, operandCurrent.length()-1);
-                break;
-        }
-    }
-
-    // Invert the sign of the current operand.
-    private void invert() {
-        // Copy the stored operand into the current operand in order to apply the inversion.
-        if (operandCurrent.isEmpty()) {
-            operandCurrent = operandStored;
-            operandStored = DEFAULT_OPERAND_STORED;
-        }
-        // Invert sign.
-        if (operandCurrent.contains(MINUS_SYMBOL)) {
-            operandCurrent = operandCurrent.substring(1);
-        } else {
-            operandCurrent = MINUS_SYMBOL + operandCurrent;
-        }
-    }
-
-    // Generate a random number and replace the current operand.
-    private void random() {
-        operandCurrent = String.valueOf((int)(Math.random() * 100));
-    }
-
-    // Get the string showing the current operand to be displayed.
-    private String getDisplayText() {
-        String text;
-        if (!operandCurrent.isEmpty()) {
-            text = operandCurrent;
-        } else {
-            if (operandStored.isEmpty()) {
-                text = DEFAULT_DISPLAY_TEXT;
-            } else {
-                text = operandStored;
-            }
+                return PROGRAM_NAME;
         }
-        // Add a "0" at the beginning if the first character is a decimal point.
-        if (text.charAt(0) == DECIMAL_SYMBOL.charAt(0)) {
-            text = DEFAULT_DISPLAY_TEXT + text;
-        }
-        // Replace the hyphen, if exists, with a minus sign.
-        text = text.replace(MINUS_SYMBOL, MINUS_SYMBOL_DISPLAY);
-        return text;
     }
 
-    // Solve the stored operation and operands and return the result as text.
-    private String calculate() {
-        // Convert the operands to doubles.
-        double[] operands = new double[2];
-        for (int i = 0; i < operands.length; i++) {
-            try {
-                String text = i == 0 ? operandStored : (!operandCurrent.equals(DEFAULT_OPERAND_CURRENT) ? operandCurrent : operandRepeated);
-                operands[i] = Double.parseDouble(text);
-            }
-            catch (NumberFormatException e) {
-                operands[i] = Double.parseDouble(DEFAULT_DISPLAY_TEXT);
-            }
-        }
-
-        // Perform the calculation on the operands, using the stored operation if no current operation exists.
-        double result;
-        boolean eliminateRoundoffError = false;
-        switch (!operation.equals(DEFAULT_OPERATION) ? operation : operationRepeated) {
-            case PLUS_SYMBOL:
-                result = operands[0] + operands[1];
-                eliminateRoundoffError = true;
-                break;
-            case MINUS_SYMBOL:
-                result = operands[0] - operands[1];
-                eliminateRoundoffError = true;
-                break;
-            case MULTIPLY_SYMBOL:
-                result = operands[0] * operands[1];
-                break;
-            case DIVIDE_SYMBOL:
-                result = operands[0] / operands[1];
-                break;
-            case POWER_SYMBOL:
-                result = Math.pow(operands[0], operands[1]);
-                break;
-            default:
-                result = Double.parseDouble(DEFAULT_DISPLAY_TEXT);
-                break;
-        }
-        // Convert the result to text.
-        String text;
-        if (Double.isFinite(result)) {
-            if ((long)result == Long.MAX_VALUE) {
-                text = OVERFLOW_MESSAGE;
-            }
-            else if ((long)result == Long.MIN_VALUE) {
-                text = UNDERFLOW_MESSAGE;
-            }
-            else {
-                // Round the result to a number of digits based on how many digits follow the decimal point.
-                if (eliminateRoundoffError && result != 0.0) {
-                    int precision = 0;
-                    for (int i = 0; i < operands.length; i++) {
-                        String operandText = String.valueOf(operands[0]);
-                        int numberTrailingDigits = (operandText.contains(DECIMAL_SYMBOL) ? operandText.length() - operandText.indexOf(DECIMAL_SYMBOL) : 0);
-                        if (numberTrailingDigits > precision && numberTrailingDigits <= MAX_PRECISION) {
-                            precision = numberTrailingDigits;
-                        }
-                    }
-                    result = Math.round(result * Math.pow(10,precision)) / Math.pow(10,precision);
-                }
-                // Remove decimal point and successive digits if number represents an integer.
-                text = (result % 1) == 0 ? String.valueOf((long)result) : String.valueOf(result);
-            }
+    @Override
+    public void stop() {
+        // The preview does not exist if the window was closed before the controls were created.
+        if (preview != null) {
+            preview.close();
+            background.close();
         }
-        else {
-            text = String.valueOf(result);
+        if (journal != null) {
+            engine.saveSession();
+            journal.close();
         }
-        return text;
-    }
-
-    // Store the specified operation or perform an intermediate calculation with it.
-    private void operate(String operator) {
-        if (!operandCurrent.isEmpty()) {
-            // Store the entered operand.
-            if (operandStored.isEmpty()) {
-                operandStored = new String(operandCurrent);
-            }
-            // Calculate the specified operation on the existing operands and store the result as the stored operand.
-            else {
-                operandStored = calculate();
-            }
+        if (Boolean.getBoolean(DisplayRenderer.LATENCY_PROPERTY)) {
+            System.out.println(renderer);
         }
-        operandCurrent = DEFAULT_OPERAND_CURRENT;
-        operation = operator;
     }
 
-    // Solve the stored operation and operands and clear the stored operation.
-    private void solve() {
-        // Store the current operand and operation for repeated calculations.
-        if (!operandCurrent.equals(DEFAULT_OPERAND_CURRENT)) {
-            operandRepeated = operandCurrent;
+    public static void main(String[] args) throws IOException {
+        // Evaluate a file of calculations without starting the user interface.
+        if (args.length == 3 && args[0].equals(BATCH_OPTION)) {
+            new BatchEvaluator().evaluate(Paths.get(args[1]), Paths.get(args[2]));
+            return;
         }
-        if (!operation.equals(DEFAULT_OPERATION)) {
-            if (!operandCurrent.equals(DEFAULT_OPERAND_CURRENT)) {
-                operationRepeated = operation;
-            }
-            // Revert to the previously entered operation if a new operation was entered but no operand was entered.
-            else {
-                operation = operationRepeated;
+        // Serve calculations on a loopback port without starting the user interface.
+        if ((args.length == 1 || args.length == 2) && args[0].equals(SERVER_OPTION)) {
+            int port = args.length == 2 ? Integer.parseInt(args[1]) : CalculationServer.DEFAULT_PORT;
+            try (CalculationServer server = new CalculationServer(port)) {
+                System.out.println("Serving calculations on port " + server.getPort());
+                server.run();
             }
+            return;
         }
-
-        if (!operandStored.isEmpty() && (!operandCurrent.isEmpty() || !operandRepeated.isEmpty())) {
-            operandStored = calculate();
-            operandCurrent = DEFAULT_OPERAND_CURRENT;
-            operation = DEFAULT_OPERATION;
-        }
-    }
-
-    // Reset the display and any stored operands.
-    private void clear() {
-        operandCurrent = DEFAULT_OPERAND_CURRENT;
-        operandStored = DEFAULT_OPERAND_STORED;
-        operandRepeated = DEFAULT_OPERAND_REPEATED;
-        operation = DEFAULT_OPERATION;
-        operationRepeated = DEFAULT_OPERATION;
+        launch();
     }
 }
\ No newline at end of file
@@ -0,0 +1,669 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+// The state and logic of a single calculator session, independent of any user interface.
+// An instance is not thread-safe and is meant to be confined to one thread, but any number of instances may be used concurrently.
+public class CalculatorEngine {
+    // Default text displayed at the top.
+    public static final String DEFAULT_DISPLAY_TEXT = "0";
+    // Default operation value.
+    static final String DEFAULT_OPERATION = "";
+
+    // Number of digits to which results are rounded to.
+    public static final int MAX_PRECISION = 15;
+    // System property that sets the number of compiled expressions kept for reuse by each engine that evaluates expressions.
+    public static final String EXPRESSION_CACHE_PROPERTY = "calculator.expressionCache";
+    // Number of compiled expressions kept for reuse, by default well above the few hundred formulas of a typical workload, since each takes only a few hundred bytes.
+    public static final int EXPRESSION_CACHE_CAPACITY = Integer.getInteger(EXPRESSION_CACHE_PROPERTY, 4096);
+    // Number of calculations kept in the tape.
+    public static final int TAPE_CAPACITY = 1024;
+    // Default number of significant digits of results in precision mode.
+    public static final int DEFAULT_DECIMAL_PRECISION = 50;
+
+    // Operator symbols.
+    public static final String PLUS_SYMBOL = "+";
+    public static final String MINUS_SYMBOL = "-";
+    public static final String MINUS_SYMBOL_DISPLAY = Character.toString('\u2212');
+    public static final String MULTIPLY_SYMBOL = "*";
+    public static final String MULTIPLY_SYMBOL_DISPLAY = Character.toString('\u00d7');
+    public static final String DIVIDE_SYMBOL = "/";
+    public static final String DIVIDE_SYMBOL_DISPLAY = Character.toString('\u00f7');
+    public static final String POWER_SYMBOL = "^";
+    public static final String DECIMAL_SYMBOL = ".";
+    // Symbols of other actions.
+    public static final String INVERT_SYMBOL = Character.toString('\u00b1');
+    public static final String RANDOM_SYMBOL = "?";
+    public static final String SOLVE_SYMBOL = "=";
+    // Error messages.
+    public static final String OVERFLOW_MESSAGE = "Overflow";
+    public static final String UNDERFLOW_MESSAGE = "Underflow";
+
+    // The stored operand to be operated on.
+    private final OperandBuffer operandStored = new OperandBuffer();
+    // The current operand being entered by the user.
+    private final OperandBuffer operandCurrent = new OperandBuffer();
+    // The operand used by repeated calculations when no explicitly operands are input.
+    private final OperandBuffer operandRepeated = new OperandBuffer();
+    // The selected operation.
+    private String operation = DEFAULT_OPERATION;
+    // The previous operation, which is stored after a solve.
+    private String operationRepeated = DEFAULT_OPERATION;
+
+    // Converts results to text.
+    private final DecimalFormatter formatter = new DecimalFormatter();
+    // Computes many repetitions of a calculation at once.
+    private final RepeatedCalculation repeated = new RepeatedCalculation(formatter);
+    // Expressions compiled by this session, reused when the same text is evaluated again.
+    // Created on first use, so that sessions that evaluate no expressions, such as snapshots, have none.
+    private ExpressionCache expressions;
+    // Stack used to evaluate compiled expressions, reused between calls, and also created on first use.
+    private double[] expressionStack = new double[0];
+    // Characters of the text to be displayed, reused between calls.
+    private char[] displayChars = new char[OperandBuffer.INITIAL_CAPACITY];
+    // The most recent calculations of this session, or null if calculations are not recorded.
+    private final CalculationTape tape;
+    // The journal to which calculations and the session are written, if any.
+    private TapeJournal journal;
+    // The kind of numbers that operands are calculated as.
+    private ArithmeticMode mode = ArithmeticMode.DOUBLE;
+    // Rounding of results in precision mode.
+    private MathContext context = DecimalMath.context(DEFAULT_DECIMAL_PRECISION);
+    // Full value of the result last written into the formatter, or null if it was calculated with doubles or shown as an error.
+    private Number exactResult;
+    // The most recent calculation in precision mode, reused if the same calculation is made again, such as one made by a snapshot on another thread.
+    private PreciseCalculation preciseCalculation;
+    // Whether this is a snapshot solved in the background, whose solves are instrumented separately and whose other actions and results are not instrumented.
+    private boolean background;
+
+    public CalculatorEngine() {
+        this(new CalculationTape(TAPE_CAPACITY));
+    }
+
+    private CalculatorEngine(CalculationTape tape) {
+        this.tape = tape;
+    }
+
+    // Enter the specified text into the current operand.
+    public void enter(String text) {
+        if (text.length() == 1) {
+            enter(text.charAt(0));
+        }
+        // Only add the text if it begins with an alphanumeric character.
+        else if (Character.isLetterOrDigit(text.charAt(0))) {
+            long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
+            prepareEntry();
+            for (int i = 0; i < text.length(); i++) {
+                operandCurrent.append(text.charAt(i));
+            }
+            saveSession();
+            if (Instrumentation.ENABLED && !background) {
+                Instrumentation.record(Instrumentation.ACTION_ENTER, null, start);
+            }
+        }
+    }
+
+    // Enter the specified character into the current operand.
+    public void enter(char c) {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
+        // Only add the character if it is alphanumeric or is a decimal point.
+        if (Character.isLetterOrDigit(c) || (c == DECIMAL_SYMBOL.charAt(0) && operandCurrent.indexOf(c) < 0)) {
+            // Do not add the character if it is a zero and the current operand is "0".
+            if (!(c == '0' && operandCurrent.isOnly('0'))) {
+                prepareEntry();
+                operandCurrent.append(c);
+                saveSession();
+            }
+        }
+        if (Instrumentation.ENABLED && !background) {
+            Instrumentation.record(Instrumentation.ACTION_ENTER, null, start);
+        }
+    }
+
+    // Prepare the current operand for a character to be entered.
+    private void prepareEntry() {
+        // Clear if this an operation was just completed and is not part of an intermediate operation.
+        if (!operandStored.isEmpty() && operation.isEmpty()) {
+            clear();
+        }
+        // If the operand only contains "0", remove it.
+        if (operandCurrent.isOnly('0')) {
+            operandCurrent.clear();
+        }
+    }
+
+    // Remove the last character from the current operand.
+    public void backspace() {
+        operandCurrent.removeLast();
+        saveSession();
+    }
+
+    // Invert the sign of the current operand.
+    public void invert() {
+        // Copy the stored operand into the current operand in order to apply the inversion.
+        if (operandCurrent.isEmpty()) {
+            operandCurrent.copyFrom(operandStored);
+            operandStored.clear();
+        }
+        // Invert sign.
+        if (operandCurrent.indexOf(MINUS_SYMBOL.charAt(0)) >= 0) {
+            operandCurrent.removeFirst();
+        } else {
+            operandCurrent.prepend(MINUS_SYMBOL.charAt(0));
+        }
+        saveSession();
+    }
+
+    // Generate a random number and replace the current operand.
+    public void random() {
+        operandCurrent.set(ThreadLocalRandom.current().nextInt(100));
+        saveSession();
+    }
+
+    // Enter text as if each character were typed in turn, such as a calculation or a tape of calculations copied from elsewhere.
+    // The text holds one calculation per line, such as "12 + 3 = 15". Digits and the decimal point enter operands, operators, including their displayed symbols, operate,
+    // "=" solves, "\u00b1" negates the operand, and "?" enters a random number. All other characters, such as spaces, letters, and digit group separators, are ignored.
+    // A line break solves any pending operation and ends the entry, so that digits on the next line begin a new calculation instead of continuing the last operand,
+    // such as a result copied after "=".
+    public void paste(CharSequence text) {
+        // Whether a line break has ended the entry, and nothing but ignored characters has followed it.
+        boolean lineEnded = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '+':
+                    operate(PLUS_SYMBOL);
+                    break;
+                case '-':
+                case '\u2212':
+                    operate(MINUS_SYMBOL);
+                    break;
+                case '*':
+                case '\u00d7':
+                    operate(MULTIPLY_SYMBOL);
+                    break;
+                case '/':
+                case '\u00f7':
+                    operate(DIVIDE_SYMBOL);
+                    break;
+                case '^':
+                    operate(POWER_SYMBOL);
+                    break;
+                case '=':
+                    solve();
+                    break;
+                case '\n':
+                case '\r':
+                    if (!operation.equals(DEFAULT_OPERATION)) {
+                        solve();
+                    }
+                    lineEnded = true;
+                    continue;
+                case '\u00b1':
+                    invert();
+                    break;
+                case '?':
+                    random();
+                    break;
+                default:
+                    if (!((c >= '0' && c <= '9') || c == DECIMAL_SYMBOL.charAt(0))) {
+                        continue;
+                    }
+                    if (lineEnded && !operandCurrent.isEmpty()) {
+                        clear();
+                    }
+                    enter(c);
+                    break;
+            }
+            lineEnded = false;
+        }
+    }
+
+    // Get the string showing the current operand to be displayed.
+    public String getDisplayText() {
+        if (!Instrumentation.ENABLED || background) {
+            return formatDisplayText();
+        }
+        long start = System.nanoTime();
+        String text = formatDisplayText();
+        Instrumentation.record(Instrumentation.ACTION_DISPLAY, null, start);
+        return text;
+    }
+
+    // Build the text of the current operand, or of the stored operand if none was entered.
+    private String formatDisplayText() {
+        OperandBuffer operand;
+        if (!operandCurrent.isEmpty()) {
+            operand = operandCurrent;
+        } else {
+            if (operandStored.isEmpty()) {
+                return DEFAULT_DISPLAY_TEXT;
+            } else {
+                operand = operandStored;
+            }
+        }
+        if (displayChars.length < operand.length() + 1) {
+            displayChars = new char[operand.length() * 2];
+        }
+        int length = 0;
+        // Add a "0" at the beginning if the first character is a decimal point.
+        if (operand.charAt(0) == DECIMAL_SYMBOL.charAt(0)) {
+            displayChars[length++] = DEFAULT_DISPLAY_TEXT.charAt(0);
+        }
+        // Replace the hyphen, if exists, with a minus sign.
+        for (int i = 0; i < operand.length(); i++) {
+            char c = operand.charAt(i);
+            displayChars[length++] = c == MINUS_SYMBOL.charAt(0) ? MINUS_SYMBOL_DISPLAY.charAt(0) : c;
+        }
+        return new String(displayChars, 0, length);
+    }
+
+    // Solve the stored operation and operands and return the result as text.
+    public String calculate() {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
+        formatCalculation();
+        String text = formatter.toString();
+        if (Instrumentation.ENABLED && !background) {
+            Instrumentation.record(Instrumentation.ACTION_CALCULATE, operator(), start);
+        }
+        return text;
+    }
+
+    // Solve the stored operation and operands, write the result as text into the formatter, and return the result before formatting.
+    private double formatCalculation() {
+        double result = calculateAndFormat();
+        if (Instrumentation.ENABLED && !background) {
+            Instrumentation.countResult(formatter.chars(), formatter.length());
+        }
+        return result;
+    }
+
+    // Calculate the result of the stored operation and operands and write it into the formatter.
+    private double calculateAndFormat() {
+        exactResult = null;
+        if (mode == ArithmeticMode.PRECISE) {
+            // Calculate with decimals rounded to the chosen precision, which have no limit on their magnitude.
+            BigDecimal operandFirst = operandStored.decimalValue(context);
+            BigDecimal operandSecond = operandSecond().decimalValue(context);
+            BigDecimal decimal = operandFirst != null && operandSecond != null ? preciseResult(operator(), operandFirst, operandSecond) : null;
+            // Results that are not finite, such as division by zero, are calculated with doubles instead.
+            if (decimal != null) {
+                formatter.formatResult(decimal, context.getPrecision());
+                // Keep the decimal unless it is shown as an error or as zero, or underflows a double, in which case the text has the same value.
+                if (formatter.value() != 0.0) {
+                    exactResult = decimal;
+                }
+                return decimal.doubleValue();
+            }
+        }
+        else if (mode == ArithmeticMode.EXACT) {
+            // Calculate with fractions, which need no rounding, and convert to a double only for display.
+            Rational operandFirst = operandStored.rationalValue();
+            Rational operandSecond = operandSecond().rationalValue();
+            Rational exact = operandFirst != null && operandSecond != null ? Rational.evaluate(operator(), operandFirst, operandSecond) : null;
+            // Results that are not rational, such as fractional powers, are calculated with doubles instead.
+            if (exact != null) {
+                double result = exact.doubleValue();
+                formatter.formatResult(result);
+                if (Double.isFinite(result) && DecimalFormatter.resultValue(result) == result) {
+                    exactResult = exact;
+                }
+                return result;
+            }
+        }
+        // Get the numeric values of the operands, which are maintained as they are entered.
+        double result = evaluate(operator(), operandStored.doubleValue(), operandSecond().doubleValue(), formatter);
+        formatter.formatResult(result);
+        return result;
+    }
+
+    // Calculate an operation in precision mode, or reuse the result of the most recent calculation if it was the same.
+    private BigDecimal preciseResult(String operator, BigDecimal operandFirst, BigDecimal operandSecond) {
+        PreciseCalculation calculation = preciseCalculation;
+        if (calculation == null || !calculation.matches(operator, operandFirst, operandSecond, context)) {
+            calculation = new PreciseCalculation(operator, operandFirst, operandSecond, context, DecimalMath.evaluate(operator, operandFirst, operandSecond, context));
+            preciseCalculation = calculation;
+        }
+        return calculation.result;
+    }
+
+    // Whether solving now would make a calculation in precision mode that has not already been made, which may take long at a high precision.
+    public boolean needsPreciseCalculation() {
+        if (mode != ArithmeticMode.PRECISE || operandStored.isEmpty() || (operandCurrent.isEmpty() && operandRepeated.isEmpty())) {
+            return false;
+        }
+        BigDecimal operandFirst = operandStored.decimalValue(context);
+        BigDecimal operandSecond = operandSecond().decimalValue(context);
+        PreciseCalculation calculation = preciseCalculation;
+        return operandFirst != null && operandSecond != null && (calculation == null || !calculation.matches(operator(), operandFirst, operandSecond, context));
+    }
+
+    // Whether operating now would calculate the stored operation, instead of only storing the operand or replacing the operation.
+    public boolean operateCalculates() {
+        return !operandCurrent.isEmpty() && !operandStored.isEmpty();
+    }
+
+    // Reuse the most recent calculation in precision mode of a snapshot, once it is no longer used on another thread, so that making the same calculation takes no time.
+    public void reusePreciseCalculation(CalculatorEngine snapshot) {
+        if (snapshot.preciseCalculation != null) {
+            preciseCalculation = snapshot.preciseCalculation;
+        }
+    }
+
+    // Get the second operand of the stored operation, which is the repeated operand if none was entered.
+    private OperandBuffer operandSecond() {
+        return !operandCurrent.isEmpty() ? operandCurrent : operandRepeated;
+    }
+
+    // Get the stored operation, which is the repeated operation if none exists.
+    private String operator() {
+        return !operation.equals(DEFAULT_OPERATION) ? operation : operationRepeated;
+    }
+
+    // Perform the calculation of the specified operator on two operands, as displayed after formatting with DecimalFormatter.formatResult().
+    // The formatter is used as a scratch buffer when eliminating roundoff error.
+    public static double evaluate(String operator, double operandFirst, double operandSecond, DecimalFormatter formatter) {
+        double result;
+        boolean eliminateRoundoffError = false;
+        switch (operator) {
+            case PLUS_SYMBOL:
+                result = operandFirst + operandSecond;
+                eliminateRoundoffError = true;
+                break;
+            case MINUS_SYMBOL:
+                result = operandFirst - operandSecond;
+                eliminateRoundoffError = true;
+                break;
+            case MULTIPLY_SYMBOL:
+                result = operandFirst * operandSecond;
+                break;
+            case DIVIDE_SYMBOL:
+                result = operandFirst / operandSecond;
+                break;
+            case POWER_SYMBOL:
+                result = Power.pow(operandFirst, operandSecond);
+                break;
+            default:
+                result = 0.0;
+                break;
+        }
+        return eliminateRoundoffError ? eliminateRoundoffError(operandFirst, result, formatter) : result;
+    }
+
+    // Round the result of an addition or subtraction to a number of digits based on how many digits follow the decimal point of its first operand,
+    // unless the result is shown as an error, hiding binary roundoff error such as that of 0.1 + 0.2.
+    static double eliminateRoundoffError(double operandFirst, double result, DecimalFormatter formatter) {
+        if (result != 0.0 && Double.isFinite(result) && (long)result != Long.MAX_VALUE && (long)result != Long.MIN_VALUE) {
+            int precision = formatter.trailingLength(operandFirst);
+            return DecimalFormatter.round(result, precision <= MAX_PRECISION ? precision : 0);
+        }
+        return result;
+    }
+
+    // Store the specified operation or perform an intermediate calculation with it.
+    public void operate(String operator) {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
+        // The operator calculated, if any, is the stored one.
+        String operatorCalculated = Instrumentation.ENABLED ? operator() : null;
+        if (!operandCurrent.isEmpty()) {
+            // Store the entered operand.
+            if (operandStored.isEmpty()) {
+                operandStored.copyFrom(operandCurrent);
+            }
+            // Calculate the specified operation on the existing operands and store the result as the stored operand.
+            else {
+                record(CalculationTape.KIND_INTERMEDIATE, formatCalculation());
+                operandStored.set(formatter.chars(), formatter.length(), formatter.value(), exactResult);
+            }
+        }
+        operandCurrent.clear();
+        operation = operator;
+        saveSession();
+        if (Instrumentation.ENABLED && !background) {
+            Instrumentation.record(Instrumentation.ACTION_OPERATE, operatorCalculated, start);
+        }
+    }
+
+    // Solve the stored operation and operands and clear the stored operation.
+    public void solve() {
+        solve(true);
+    }
+
+    // Solve, recording the calculation only if specified, and return whether anything was calculated.
+    private boolean solve(boolean recorded) {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
+        // Store the current operand and operation for repeated calculations.
+        if (!operandCurrent.isEmpty()) {
+            operandRepeated.copyFrom(operandCurrent);
+        }
+        if (!operation.equals(DEFAULT_OPERATION)) {
+            if (!operandCurrent.isEmpty()) {
+                operationRepeated = operation;
+            }
+            // Revert to the previously entered operation if a new operation was entered but no operand was entered.
+            else {
+                operation = operationRepeated;
+            }
+        }
+
+        boolean calculated = !operandStored.isEmpty() && (!operandCurrent.isEmpty() || !operandRepeated.isEmpty());
+        if (calculated) {
+            double result = formatCalculation();
+            if (recorded) {
+                record(CalculationTape.KIND_SOLVE, result);
+            }
+            operandStored.set(formatter.chars(), formatter.length(), formatter.value(), exactResult);
+            operandCurrent.clear();
+            operation = DEFAULT_OPERATION;
+            saveSession();
+        }
+        if (Instrumentation.ENABLED) {
+            Instrumentation.record(background ? Instrumentation.ACTION_BACKGROUND_SOLVE : Instrumentation.ACTION_SOLVE, operationRepeated, start);
+        }
+        return calculated;
+    }
+
+    // Get text listing everything copied by a snapshot that affects what it displays, so that the same text means the same result when solved.
+    public String getSnapshotKey() {
+        return operandStored + "\n" + operation + "\n" + operandCurrent + "\n" + operandRepeated + "\n" + operationRepeated + "\n" + mode + "\n" + context.getPrecision();
+    }
+
+    // Get a copy of the operands, operations, and arithmetic mode, to be solved on another thread to find what solving would display, or null if solving would not calculate anything.
+    // The copy does not record calculations, and its solves are instrumented separately from those of this engine.
+    public CalculatorEngine snapshot() {
+        if (operandStored.isEmpty() || (operandCurrent.isEmpty() && operandRepeated.isEmpty())) {
+            return null;
+        }
+        CalculatorEngine copy = new CalculatorEngine(null);
+        copy.background = true;
+        copy.operandStored.copyFrom(operandStored);
+        copy.operandCurrent.copyFrom(operandCurrent);
+        copy.operandRepeated.copyFrom(operandRepeated);
+        copy.operation = operation;
+        copy.operationRepeated = operationRepeated;
+        copy.mode = mode;
+        copy.context = context;
+        copy.preciseCalculation = preciseCalculation;
+        return copy;
+    }
+
+    // Solve as if "=" were pressed the specified number of times, giving the same result without formatting each intermediate result.
+    // The solves are recorded as one calculation with their number, except in exact and precision modes, in which each solve is performed and recorded.
+    public void repeat(long count) {
+        if (count <= 0) {
+            return;
+        }
+        boolean aggregated = count > 1 && mode == ArithmeticMode.DOUBLE;
+        double operandFirst = operandStored.doubleValue();
+        // Further solves repeat the calculation only if the first one calculated, and otherwise do nothing.
+        if (!solve(!aggregated) || count == 1) {
+            return;
+        }
+        if (!aggregated) {
+            for (long i = 1; i < count; i++) {
+                solve();
+            }
+            return;
+        }
+        repeated.evaluate(operator(), operandStored.doubleValue(), operandRepeated.doubleValue(), count - 1);
+        formatter.formatResult(repeated.getResult());
+        operandStored.set(formatter.chars(), formatter.length(), formatter.value());
+        record(CalculationTape.KIND_REPEAT, operandFirst, operandRepeated.doubleValue(), repeated.getResult(), count);
+        saveSession();
+    }
+
+    // Set the kind of numbers that operands are calculated as, from the next calculation.
+    // In exact mode, results such as 1/3 keep their exact value when used as operands, and in precision mode, results are calculated to the number of digits set by setPrecision().
+    public void setArithmeticMode(ArithmeticMode mode) {
+        this.mode = mode;
+    }
+
+    public ArithmeticMode getArithmeticMode() {
+        return mode;
+    }
+
+    // Set the number of significant digits of results in precision mode.
+    public void setPrecision(int digits) {
+        if (digits < 1 || digits > DecimalMath.MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 1 and " + DecimalMath.MAX_PRECISION + " digits: " + digits);
+        }
+        context = DecimalMath.context(digits);
+    }
+
+    public int getPrecision() {
+        return context.getPrecision();
+    }
+
+    // Add the calculation of the stored operation and operands, which has the specified result, to the tape and the journal.
+    private void record(byte kind, double result) {
+        record(kind, operandStored.doubleValue(), operandSecond().doubleValue(), result, 1);
+    }
+
+    // Add a calculation of the stored operation, solved the specified number of times, to the tape and the journal.
+    private void record(byte kind, double operandFirst, double operandSecond, double result, long repetitionCount) {
+        long time = System.currentTimeMillis();
+        String operator = operator();
+        char symbol = operator.isEmpty() ? 0 : operator.charAt(0);
+        if (tape != null) {
+            tape.record(time, kind, symbol, operandFirst, operandSecond, result, repetitionCount);
+        }
+        if (journal != null) {
+            journal.append(time, kind, symbol, operandFirst, operandSecond, result, repetitionCount);
+        }
+    }
+
+    // Get the most recent calculations of this session.
+    public CalculationTape getTape() {
+        return tape;
+    }
+
+    // Restore the tape and the session from a journal, and write calculations and the session to it from now on.
+    public void attachJournal(TapeJournal journal) {
+        tape.clear();
+        journal.readTape(tape);
+        if (!journal.readSession(this)) {
+            clear();
+        }
+        this.journal = journal;
+    }
+
+    // Save the session to the journal, if any, after every change to the operands, so that no entry is lost if the program exits abnormally.
+    // Saving copies the operands into the mapped file with no system call.
+    public void saveSession() {
+        if (journal != null) {
+            journal.writeSession(this);
+        }
+    }
+
+    // Write the operands and operations into a buffer, and return whether there was enough space.
+    boolean writeSession(ByteBuffer buffer) {
+        if (buffer.remaining() < 2 * Character.BYTES) {
+            return false;
+        }
+        buffer.putChar(operation.isEmpty() ? 0 : operation.charAt(0));
+        buffer.putChar(operationRepeated.isEmpty() ? 0 : operationRepeated.charAt(0));
+        return operandStored.write(buffer) && operandCurrent.write(buffer) && operandRepeated.write(buffer);
+    }
+
+    // Replace the operands and operations with those read from a buffer, as written by writeSession().
+    void readSession(ByteBuffer buffer) {
+        operation = operation(buffer.getChar());
+        operationRepeated = operation(buffer.getChar());
+        operandStored.read(buffer);
+        operandCurrent.read(buffer);
+        operandRepeated.read(buffer);
+    }
+
+    // Get the operation with the specified symbol.
+    private static String operation(char symbol) {
+        switch (symbol) {
+            case '+':
+                return PLUS_SYMBOL;
+            case '-':
+                return MINUS_SYMBOL;
+            case '*':
+                return MULTIPLY_SYMBOL;
+            case '/':
+                return DIVIDE_SYMBOL;
+            case '^':
+                return POWER_SYMBOL;
+            default:
+                return DEFAULT_OPERATION;
+        }
+    }
+
+    // Get the compiled form of an infix expression, such as "3+4*2^(1-x)", compiling it only if it was not recently used.
+    public CompiledExpression compileExpression(String expression) {
+        if (expressions == null) {
+            expressions = new ExpressionCache(EXPRESSION_CACHE_CAPACITY);
+        }
+        return expressions.get(expression);
+    }
+
+    // Evaluate an infix expression with the specified values for its variables, in the order in which they first appear.
+    public double evaluateExpression(String expression, double... values) {
+        CompiledExpression compiled = compileExpression(expression);
+        if (expressionStack.length < compiled.getMaxStackSize()) {
+            expressionStack = new double[compiled.getMaxStackSize()];
+        }
+        return compiled.evaluate(values, expressionStack, formatter);
+    }
+
+    // Evaluate an infix expression and return the result as text, rounded and formatted as calculations are.
+    public String evaluateExpressionText(String expression, double... values) {
+        formatter.formatResult(evaluateExpression(expression, values));
+        return formatter.toString();
+    }
+
+    // Reset the display and any stored operands.
+    public void clear() {
+        operandCurrent.clear();
+        operandStored.clear();
+        operandRepeated.clear();
+        operation = DEFAULT_OPERATION;
+        operationRepeated = DEFAULT_OPERATION;
+        saveSession();
+    }
+
+    // The operands, operator, and context of a calculation in precision mode, and its result, which may be null. Immutable, so that it can be passed between threads.
+    private static final class PreciseCalculation {
+        final String operator;
+        final BigDecimal operandFirst;
+        final BigDecimal operandSecond;
+        final MathContext context;
+        final BigDecimal result;
+
+        PreciseCalculation(String operator, BigDecimal operandFirst, BigDecimal operandSecond, MathContext context, BigDecimal result) {
+            this.operator = operator;
+            this.operandFirst = operandFirst;
+            this.operandSecond = operandSecond;
+            this.context = context;
+            this.result = result;
+        }
+
+        boolean matches(String operator, BigDecimal operandFirst, BigDecimal operandSecond, MathContext context) {
+            return this.operator.equals(operator) && this.operandFirst.equals(operandFirst) && this.operandSecond.equals(operandSecond) && this.context.equals(context);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+// Latency and result statistics of the calculator, registered with the platform MBean server when instrumentation is enabled.
+public interface CalculatorStatsMXBean {
+    // Number of results shown as an overflow, an underflow, not a number, or infinity.
+    long getOverflowCount();
+    long getUnderflowCount();
+    long getNaNCount();
+    long getInfinityCount();
+
+    // One line for each action and operator with recorded latencies, giving the count, mean, median, 99th percentile, and maximum in microseconds.
+    String[] getLatencies();
+
+    // Discard the recorded statistics.
+    void reset();
+}
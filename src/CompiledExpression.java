@@ -0,0 +1,340 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// An infix expression, such as "3+4*2^(1-x)", compiled once into a flat array of instructions for a stack machine.
+// Operators follow the usual precedence: "^" binds tightest and groups from the right, then negation, then "*" and "/", then "+" and "-".
+// Variables are named by letters and are given values in the order in which they first appear in the expression.
+// Each operation gives the same result as CalculatorEngine.evaluate, so sums and differences are rounded to hide binary roundoff error, and 0.1 + 0.2 is 0.3.
+// An instance is immutable and may be evaluated by any number of threads at once, each with its own DecimalFormatter.
+public final class CompiledExpression {
+    // Instruction opcodes, stored in the low byte of each instruction. The remaining bits hold an index for the push instructions.
+    static final int PUSH_CONSTANT = 0;
+    static final int PUSH_VARIABLE = 1;
+    static final int ADD = 2;
+    static final int SUBTRACT = 3;
+    static final int MULTIPLY = 4;
+    static final int DIVIDE = 5;
+    static final int POWER = 6;
+    static final int NEGATE = 7;
+    static final int OPCODE_MASK = 0xFF;
+    static final int INDEX_SHIFT = 8;
+
+    private final String expression;
+    private final int[] instructions;
+    private final double[] constants;
+    private final String[] variables;
+    // Largest number of values on the stack at any point during evaluation.
+    private final int maxStackSize;
+
+    private CompiledExpression(String expression, int[] instructions, double[] constants, String[] variables, int maxStackSize) {
+        this.expression = expression;
+        this.instructions = instructions;
+        this.constants = constants;
+        this.variables = variables;
+        this.maxStackSize = maxStackSize;
+    }
+
+    // Compile an expression, throwing an IllegalArgumentException if it is not valid.
+    public static CompiledExpression compile(String expression) {
+        return new Compiler(expression).compile();
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    // Get the names of the variables, in the order in which their values are given.
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    // Get the size of the stack needed to evaluate the expression.
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    // Evaluate the expression with the specified variable values.
+    public double evaluate(double... values) {
+        return evaluate(values, new double[maxStackSize], new DecimalFormatter());
+    }
+
+    // Evaluate the expression with the specified variable values, using the specified array as the stack and the formatter as a scratch buffer to avoid allocating.
+    public double evaluate(double[] values, double[] stack, DecimalFormatter formatter) {
+        if (values.length < variables.length) {
+            throw new IllegalArgumentException("Expected " + variables.length + " variable values but got " + values.length);
+        }
+        int top = -1;
+        for (int instruction : instructions) {
+            switch (instruction & OPCODE_MASK) {
+                case PUSH_CONSTANT:
+                    stack[++top] = constants[instruction >>> INDEX_SHIFT];
+                    break;
+                case PUSH_VARIABLE:
+                    stack[++top] = values[instruction >>> INDEX_SHIFT];
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] = CalculatorEngine.eliminateRoundoffError(stack[top], stack[top] + stack[top + 1], formatter);
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] = CalculatorEngine.eliminateRoundoffError(stack[top], stack[top] - stack[top + 1], formatter);
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] = stack[top] * stack[top + 1];
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] = stack[top] / stack[top + 1];
+                    break;
+                case POWER:
+                    top--;
+                    stack[top] = Power.pow(stack[top], stack[top + 1]);
+                    break;
+                case NEGATE:
+                    stack[top] = -stack[top];
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // Apply a binary instruction to two values, as evaluation does.
+    static double apply(int opcode, double operandFirst, double operandSecond, DecimalFormatter formatter) {
+        switch (opcode) {
+            case ADD:
+                return CalculatorEngine.eliminateRoundoffError(operandFirst, operandFirst + operandSecond, formatter);
+            case SUBTRACT:
+                return CalculatorEngine.eliminateRoundoffError(operandFirst, operandFirst - operandSecond, formatter);
+            case MULTIPLY:
+                return operandFirst * operandSecond;
+            case DIVIDE:
+                return operandFirst / operandSecond;
+            default:
+                return Power.pow(operandFirst, operandSecond);
+        }
+    }
+
+    // Recursive descent parser that emits instructions in postfix order, folding operations on constants as they are emitted.
+    private static final class Compiler {
+        private final String expression;
+        private int position;
+        private int[] instructions = new int[16];
+        private int instructionCount;
+        private double[] constants = new double[8];
+        private int constantCount;
+        private final ArrayList<String> variables = new ArrayList<>();
+        // Used as a scratch buffer when folding sums and differences of constants.
+        private final DecimalFormatter formatter = new DecimalFormatter();
+        private int stackSize;
+        private int maxStackSize;
+
+        Compiler(String expression) {
+            this.expression = expression;
+        }
+
+        CompiledExpression compile() {
+            parseSum();
+            skipWhitespace();
+            if (position < expression.length()) {
+                throw error("Unexpected '" + expression.charAt(position) + "'");
+            }
+            return new CompiledExpression(
+                expression,
+                Arrays.copyOf(instructions, instructionCount),
+                Arrays.copyOf(constants, constantCount),
+                variables.toArray(new String[0]),
+                maxStackSize
+            );
+        }
+
+        // sum := product (("+" | "-") product)*
+        private void parseSum() {
+            parseProduct();
+            while (true) {
+                if (accept('+')) {
+                    parseProduct();
+                    emitBinary(ADD);
+                } else if (accept('-') || accept('\u2212')) {
+                    parseProduct();
+                    emitBinary(SUBTRACT);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        // product := unary (("*" | "/") unary)*
+        private void parseProduct() {
+            parseUnary();
+            while (true) {
+                if (accept('*') || accept('\u00d7')) {
+                    parseUnary();
+                    emitBinary(MULTIPLY);
+                } else if (accept('/') || accept('\u00f7')) {
+                    parseUnary();
+                    emitBinary(DIVIDE);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        // unary := ("-" | "+") unary | power
+        private void parseUnary() {
+            if (accept('-') || accept('\u2212')) {
+                parseUnary();
+                emitNegate();
+            } else if (accept('+')) {
+                parseUnary();
+            } else {
+                parsePower();
+            }
+        }
+
+        // power := primary ("^" unary)?
+        private void parsePower() {
+            parsePrimary();
+            if (accept('^')) {
+                parseUnary();
+                emitBinary(POWER);
+            }
+        }
+
+        // primary := number | variable | "(" sum ")"
+        private void parsePrimary() {
+            skipWhitespace();
+            if (position >= expression.length()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = expression.charAt(position);
+            if (c == '(') {
+                position++;
+                parseSum();
+                if (!accept(')')) {
+                    throw error("Expected ')'");
+                }
+            } else if (Character.isDigit(c) || c == '.') {
+                parseNumber();
+            } else if (Character.isLetter(c)) {
+                int start = position;
+                while (position < expression.length() && Character.isLetterOrDigit(expression.charAt(position))) {
+                    position++;
+                }
+                String name = expression.substring(start, position);
+                int index = variables.indexOf(name);
+                if (index < 0) {
+                    index = variables.size();
+                    variables.add(name);
+                }
+                emit(PUSH_VARIABLE | index << INDEX_SHIFT, 1);
+            } else {
+                throw error("Unexpected '" + c + "'");
+            }
+        }
+
+        // number := digits ["." digits] [("e" | "E") ["+" | "-"] digits]
+        private void parseNumber() {
+            int start = position;
+            while (position < expression.length() && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+                position++;
+            }
+            // Only treat a letter "e" as an exponent if digits follow it, so that it can still start a variable name.
+            if (position < expression.length() && (expression.charAt(position) == 'e' || expression.charAt(position) == 'E')) {
+                int exponent = position + 1;
+                if (exponent < expression.length() && (expression.charAt(exponent) == '+' || expression.charAt(exponent) == '-')) {
+                    exponent++;
+                }
+                if (exponent < expression.length() && Character.isDigit(expression.charAt(exponent))) {
+                    position = exponent;
+                    while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+                        position++;
+                    }
+                }
+            }
+            try {
+                emitConstant(Double.parseDouble(expression.substring(start, position)));
+            }
+            catch (NumberFormatException e) {
+                throw error("Invalid number '" + expression.substring(start, position) + "'");
+            }
+        }
+
+        private void emitConstant(double value) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            constants[constantCount] = value;
+            emit(PUSH_CONSTANT | constantCount++ << INDEX_SHIFT, 1);
+        }
+
+        private void emitBinary(int opcode) {
+            // Replace the operation with its result if both operands are constants.
+            if (instructionCount >= 2 && isConstant(instructionCount - 1) && isConstant(instructionCount - 2)) {
+                double operandFirst = constants[instructions[instructionCount - 2] >>> INDEX_SHIFT];
+                double operandSecond = constants[instructions[instructionCount - 1] >>> INDEX_SHIFT];
+                removeConstant();
+                removeConstant();
+                emitConstant(apply(opcode, operandFirst, operandSecond, formatter));
+            } else {
+                emit(opcode, -1);
+            }
+        }
+
+        private void emitNegate() {
+            if (isConstant(instructionCount - 1)) {
+                int index = instructions[instructionCount - 1] >>> INDEX_SHIFT;
+                constants[index] = -constants[index];
+            } else {
+                emit(NEGATE, 0);
+            }
+        }
+
+        // Add an instruction that changes the number of values on the stack by the specified amount.
+        private void emit(int instruction, int stackChange) {
+            if (instructionCount == instructions.length) {
+                instructions = Arrays.copyOf(instructions, instructionCount * 2);
+            }
+            instructions[instructionCount++] = instruction;
+            stackSize += stackChange;
+            maxStackSize = Math.max(maxStackSize, stackSize);
+        }
+
+        // Remove the last instruction, which pushes the most recently added constant.
+        private void removeConstant() {
+            instructionCount--;
+            constantCount--;
+            stackSize--;
+        }
+
+        private boolean isConstant(int index) {
+            return (instructions[index] & OPCODE_MASK) == PUSH_CONSTANT;
+        }
+
+        // Skip whitespace and consume the specified character if it is next.
+        private boolean accept(char c) {
+            skipWhitespace();
+            if (position < expression.length() && expression.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " in \"" + expression + "\"");
+        }
+    }
+}
@@ -0,0 +1,435 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+// Converts numbers to decimal text in a reusable character buffer without allocating.
+// Doubles are written with the fewest digits that uniquely identify them, using the Schubfach algorithm
+// (R. Giulietti, "The Schubfach way to render doubles", 2020), in the same layout as Double.toString.
+// Results calculated with BigDecimals are written in the same buffer, which grows to hold them.
+// An instance is not thread-safe, but any number of instances may be used concurrently.
+public class DecimalFormatter {
+    // Powers of ten that are represented exactly as doubles.
+    static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+    // Powers of ten that fit in a long.
+    static final long[] LONG_POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+        10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+        1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L,
+    };
+    // Largest number of characters written for any number.
+    static final int MAX_LENGTH = 32;
+
+    // Properties of the double format.
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    private static final int BQ_MASK = 0x7FF;
+    private static final long T_MASK = C_MIN - 1;
+    private static final long C_TINY = 3;
+    // Range of decimal exponents covered by the table of scaled powers of ten.
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    // Number of digits to which significands are normalized before being written.
+    private static final int H = 17;
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final int MASK_28 = (1 << 28) - 1;
+    // Powers of ten scaled to 126 bits, stored as pairs of the upper and lower 63 bits.
+    private static final long[] G = createScaledPowersOfTen();
+
+    private char[] chars = new char[MAX_LENGTH];
+    private int length;
+    // Value represented by the text written by formatResult().
+    private double value;
+
+    // Get the buffer containing the most recently written text.
+    public char[] chars() {
+        return chars;
+    }
+
+    // Get the length of the most recently written text.
+    public int length() {
+        return length;
+    }
+
+    // Get the value represented by the text written by formatResult().
+    public double value() {
+        return value;
+    }
+
+    // Get the text written most recently.
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    // Write a double in the layout of Double.toString, and return the number of characters written.
+    public int format(double v) {
+        length = 0;
+        long bits = Double.doubleToRawLongBits(v);
+        long t = bits & T_MASK;
+        int bq = (int)(bits >>> (P - 1)) & BQ_MASK;
+        if (bq == BQ_MASK) {
+            appendText(t != 0 ? "NaN" : bits < 0 ? "-Infinity" : "Infinity");
+            return length;
+        }
+        if (bits < 0) {
+            append('-');
+        }
+        if (bq != 0) {
+            // Normal value, with c 2^q = |v|.
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            // Integers below 2^53 are written directly.
+            if (0 < mq & mq < P) {
+                long f = c >> mq;
+                if (f << mq == c) {
+                    toChars(f, 0);
+                    return length;
+                }
+            }
+            toDecimal(-mq, c, 0);
+        }
+        else if (t != 0) {
+            // Subnormal value, scaled up when too small to have enough digits.
+            if (t < C_TINY) {
+                toDecimal(Q_MIN, 10 * t, -1);
+            } else {
+                toDecimal(Q_MIN, t, 0);
+            }
+        }
+        else {
+            appendText("0.0");
+        }
+        return length;
+    }
+
+    // Write the decimal digits of a long, and return the number of characters written.
+    public int format(long v) {
+        length = 0;
+        if (v < 0) {
+            append('-');
+        }
+        // Work with negative values so that Long.MIN_VALUE does not overflow.
+        long remaining = v < 0 ? v : -v;
+        int digits = 1;
+        while (digits < LONG_POWERS_OF_TEN.length && remaining <= -LONG_POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char)('0' - remaining % 10);
+            remaining /= 10;
+        }
+        length += digits;
+        return length;
+    }
+
+    // Write the result of a calculation as it is displayed, and return the number of characters written.
+    // Finite results that do not fit in a long are shown as an error, and integers are shown without a decimal point.
+    public int formatResult(double result) {
+        if (Double.isFinite(result)) {
+            if ((long)result == Long.MAX_VALUE) {
+                length = 0;
+                appendText(CalculatorEngine.OVERFLOW_MESSAGE);
+            }
+            else if ((long)result == Long.MIN_VALUE) {
+                length = 0;
+                appendText(CalculatorEngine.UNDERFLOW_MESSAGE);
+            }
+            else if ((result % 1) == 0) {
+                format((long)result);
+            }
+            else {
+                format(result);
+            }
+        }
+        else {
+            format(result);
+        }
+        value = resultValue(result);
+        return length;
+    }
+
+    // Write the result of a calculation with decimals as it is displayed, and return the number of characters written.
+    // Results with decimal exponents beyond DecimalMath.MAX_EXPONENT are shown as an error, and those below its negation as zero.
+    // Other results are written without trailing zeros, in scientific notation if their exponent is beyond the specified number of digits.
+    public int formatResult(BigDecimal result, int maxDigits) {
+        BigDecimal stripped = result.stripTrailingZeros();
+        int exponent = stripped.precision() - stripped.scale() - 1;
+        String text;
+        if (result.signum() != 0 && exponent > DecimalMath.MAX_EXPONENT) {
+            text = result.signum() > 0 ? CalculatorEngine.OVERFLOW_MESSAGE : CalculatorEngine.UNDERFLOW_MESSAGE;
+            value = 0.0;
+        }
+        else if (result.signum() == 0 || exponent < -DecimalMath.MAX_EXPONENT) {
+            text = CalculatorEngine.DEFAULT_DISPLAY_TEXT;
+            value = 0.0;
+        }
+        else {
+            text = exponent >= -maxDigits && exponent < maxDigits ? stripped.toPlainString() : stripped.toString();
+            value = stripped.doubleValue();
+        }
+        if (chars.length < text.length()) {
+            chars = new char[Math.max(text.length(), chars.length * 2)];
+        }
+        length = 0;
+        appendText(text);
+        return length;
+    }
+
+    // Get the value represented by the text that formatResult() writes for a result, without writing it.
+    // Results shown as an error have the value zero.
+    public static double resultValue(double result) {
+        if (Double.isFinite(result)) {
+            long integer = (long)result;
+            if (integer == Long.MAX_VALUE || integer == Long.MIN_VALUE) {
+                return 0.0;
+            }
+            if (integer == result) {
+                return integer;
+            }
+        }
+        return result;
+    }
+
+    // Get the number of characters from the decimal point to the end of the text that Double.toString would produce, or 0 if there is no decimal point.
+    public int trailingLength(double v) {
+        // Integers in this range are written with a single trailing zero.
+        if (v == (long)v && Math.abs(v) < 1e7) {
+            return 2;
+        }
+        // In the plain layout, the digits after the decimal point are those of the first decimal with at most that many that converts back to the value.
+        // Checking that is exact for up to eight digits, because the scaled value is then far below 2^53.
+        double magnitude = Math.abs(v);
+        if (magnitude >= 1e-3 && magnitude < 1e7) {
+            for (int digits = 1; digits <= 8; digits++) {
+                double scale = POWERS_OF_TEN[digits];
+                if (Math.round(v * scale) / scale == v) {
+                    return digits + 1;
+                }
+            }
+        }
+        format(v);
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == '.') {
+                return length - i;
+            }
+        }
+        return 0;
+    }
+
+    // Round a value to the specified number of digits after the decimal point, as Math.round does.
+    public static double round(double v, int precision) {
+        double scale = POWERS_OF_TEN[precision];
+        return Math.round(v * scale) / scale;
+    }
+
+    // Find the shortest decimal in the rounding interval of c 2^q, following figure 7 of the Schubfach paper.
+    private void toDecimal(int q, long c, int dk) {
+        int out = (int)c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        // The interval is asymmetric at the lower boundary of each binade.
+        if (c != C_MIN | q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = G[(k - K_MIN) << 1];
+        long g0 = G[(k - K_MIN) << 1 | 1];
+
+        long vb = roundToOdd(g1, g0, cb << h);
+        long vbl = roundToOdd(g1, g0, cbl << h);
+        long vbr = roundToOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Try one digit fewer: sp10 = 10 floor(s / 10).
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                toChars(upin ? sp10 : tp10, k);
+                return;
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            toChars(uin ? s : t, k + dk);
+            return;
+        }
+        // Both candidates are in the interval, so pick the one closest to the value, preferring the even one on ties.
+        long cmp = vb - (s + t << 1);
+        toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+    }
+
+    // Multiply the scaled power of ten g1 2^63 + g0 by cp, rounding to odd.
+    private static long roundToOdd(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    // Write the value f 10^e, where f has at most 17 digits.
+    private void toChars(long f, int e) {
+        // Normalize so that 10^16 <= f < 10^17, and the value is 0.f 10^e.
+        int digits = flog10pow2(Long.SIZE - Long.numberOfLeadingZeros(f));
+        if (f >= LONG_POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        f *= LONG_POWERS_OF_TEN[H - digits];
+        e += digits;
+
+        // Split f into its most significant digit h, the next eight digits m, and the last eight digits l.
+        long hm = Math.multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+        int l = (int)(f - 100_000_000L * hm);
+        int h = (int)(hm * 1_441_151_881L >>> 57);
+        int m = (int)(hm - 100_000_000 * h);
+
+        if (0 < e && e <= 7) {
+            // Plain layout without leading zeros.
+            appendDigit(h);
+            int y = scaleDigits(m);
+            int i = 1;
+            for (; i < e; i++) {
+                int d = 10 * y;
+                appendDigit(d >>> 28);
+                y = d & MASK_28;
+            }
+            append('.');
+            for (; i <= 8; i++) {
+                int d = 10 * y;
+                appendDigit(d >>> 28);
+                y = d & MASK_28;
+            }
+            lowDigits(l);
+        }
+        else if (-3 < e && e <= 0) {
+            // Plain layout with leading zeros.
+            append('0');
+            append('.');
+            for (; e < 0; e++) {
+                append('0');
+            }
+            appendDigit(h);
+            append8Digits(m);
+            lowDigits(l);
+        }
+        else {
+            // Scientific notation.
+            appendDigit(h);
+            append('.');
+            append8Digits(m);
+            lowDigits(l);
+            exponent(e - 1);
+        }
+    }
+
+    // Write the last eight digits, then remove trailing zeros while keeping at least one digit after the decimal point.
+    private void lowDigits(int l) {
+        if (l != 0) {
+            append8Digits(l);
+        }
+        while (chars[length - 1] == '0') {
+            length--;
+        }
+        if (chars[length - 1] == '.') {
+            length++;
+        }
+    }
+
+    // Write exactly eight digits, extracted from left to right.
+    private void append8Digits(int m) {
+        int y = scaleDigits(m);
+        for (int i = 0; i < 8; i++) {
+            int d = 10 * y;
+            appendDigit(d >>> 28);
+            y = d & MASK_28;
+        }
+    }
+
+    // Scale an eight-digit number to a 28-bit fraction from which digits are extracted by multiplying by ten.
+    private static int scaleDigits(int a) {
+        return (int)(Math.multiplyHigh((long)(a + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+    }
+
+    private void exponent(int e) {
+        append('E');
+        if (e < 0) {
+            append('-');
+            e = -e;
+        }
+        if (e < 10) {
+            appendDigit(e);
+            return;
+        }
+        int d;
+        if (e >= 100) {
+            d = e * 1_311 >>> 17;
+            appendDigit(d);
+            e -= 100 * d;
+        }
+        d = e * 103 >>> 10;
+        appendDigit(d);
+        appendDigit(e - 10 * d);
+    }
+
+    private void appendDigit(int d) {
+        chars[length++] = (char)('0' + d);
+    }
+
+    private void append(char c) {
+        chars[length++] = c;
+    }
+
+    private void appendText(String text) {
+        text.getChars(0, text.length(), chars, length);
+        length += text.length();
+    }
+
+    // floor(q log10(2))
+    private static int flog10pow2(int q) {
+        return (int)(q * 661_971_961_083L >> 41);
+    }
+
+    // floor(log10(3/4 2^q))
+    private static int flog10threeQuartersPow2(int q) {
+        return (int)(q * 661_971_961_083L + (-274_743_187_321L) >> 41);
+    }
+
+    // floor(e log2(10))
+    private static int flog2pow10(int e) {
+        return (int)(e * 913_124_641_741L >> 38);
+    }
+
+    // For each k, compute g = floor(10^-k 2^-r) + 1, where r is chosen so that 2^125 <= 10^-k 2^-r < 2^126.
+    private static long[] createScaledPowersOfTen() {
+        long[] g = new long[(K_MAX - K_MIN + 1) * 2];
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            int shift = 125 - flog2pow10(-k);
+            BigInteger scaled;
+            if (k <= 0) {
+                BigInteger power = BigInteger.TEN.pow(-k);
+                scaled = shift >= 0 ? power.shiftLeft(shift) : power.shiftRight(-shift);
+            } else {
+                scaled = BigInteger.ONE.shiftLeft(shift).divide(BigInteger.TEN.pow(k));
+            }
+            scaled = scaled.add(BigInteger.ONE);
+            g[(k - K_MIN) << 1] = scaled.shiftRight(63).longValue();
+            g[(k - K_MIN) << 1 | 1] = scaled.longValue() & MASK_63;
+        }
+        return g;
+    }
+}
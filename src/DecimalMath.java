@@ -0,0 +1,244 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Arithmetic with BigDecimals rounded to a chosen number of significant digits, including powers with fractional exponents.
+// Rounding contexts are created once for each precision, and the constant ln(10) is computed once at the largest precision needed so far.
+// Exponentials are computed with the Taylor series after repeated halving, and logarithms by Halley's method from exponentials.
+// Both are computed in binary fixed point with BigIntegers, for which halving and truncating are shifts instead of BigDecimal divisions.
+// Logarithms and exponentials stop with a CancellationException if the calling thread is interrupted.
+public final class DecimalMath {
+    // Largest number of significant digits that results can be calculated to.
+    public static final int MAX_PRECISION = 10_000;
+    // Largest magnitude of the decimal exponent of results. Larger results are shown as errors, and smaller ones are zero.
+    public static final int MAX_EXPONENT = 1_000_000;
+    // Extra digits used in intermediate calculations so that the final rounding is correct.
+    static final int GUARD_DIGITS = 10;
+    // Largest magnitude of integer exponents that BigDecimal.pow accepts.
+    static final int MAX_INTEGER_EXPONENT = 999_999_999;
+    // Extra bits used in fixed-point calculations of logarithms and exponentials.
+    static final int GUARD_BITS = 32;
+
+    // Number of correct bits of logarithms of doubles.
+    static final int DOUBLE_BITS = 50;
+
+    private static final double LOG2_10 = Math.log(10) / Math.log(2);
+    // Largest magnitude of y ln(x) for which x^y is calculated, beyond which the result is far out of range, as a power of ten.
+    private static final double LOG10_MAX_POWER_LOG = Math.log10(2.0 * MAX_EXPONENT * Math.log(10));
+    // Largest magnitude of the argument of exp, whose result must have an exponent that fits in an int.
+    private static final double MAX_EXP_ARGUMENT = 4.0 * MAX_EXPONENT * Math.log(10);
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+
+    // Rounding contexts by precision.
+    private static final ConcurrentHashMap<Integer, MathContext> CONTEXTS = new ConcurrentHashMap<>();
+    // ln(10) to the largest precision computed so far.
+    private static volatile BigDecimal ln10 = BigDecimal.ZERO;
+
+    private DecimalMath() {}
+
+    // Get the context that rounds half even to the specified number of significant digits.
+    public static MathContext context(int precision) {
+        if (precision < 1) {
+            throw new IllegalArgumentException("Invalid precision: " + precision);
+        }
+        return CONTEXTS.computeIfAbsent(precision, p -> new MathContext(p, RoundingMode.HALF_EVEN));
+    }
+
+    // Calculate the result of an operator, as in CalculatorEngine.evaluate, or return null if the result is not a finite number.
+    // Results are rounded to the precision of the context, and their exponents may exceed MAX_EXPONENT, for the formatter to show as an error.
+    public static BigDecimal evaluate(String operator, BigDecimal operandFirst, BigDecimal operandSecond, MathContext context) {
+        switch (operator) {
+            case CalculatorEngine.PLUS_SYMBOL:
+                return operandFirst.add(operandSecond, context);
+            case CalculatorEngine.MINUS_SYMBOL:
+                return operandFirst.subtract(operandSecond, context);
+            case CalculatorEngine.MULTIPLY_SYMBOL:
+                return operandFirst.multiply(operandSecond, context);
+            case CalculatorEngine.DIVIDE_SYMBOL:
+                return operandSecond.signum() == 0 ? null : operandFirst.divide(operandSecond, context);
+            case CalculatorEngine.POWER_SYMBOL:
+                return pow(operandFirst, operandSecond, context);
+            default:
+                return BigDecimal.ZERO;
+        }
+    }
+
+    // Raise a number to a power, or return null if the result is not a finite real number, as for the same cases of Math.pow.
+    public static BigDecimal pow(BigDecimal base, BigDecimal exponent, MathContext context) {
+        boolean integral = exponent.signum() == 0 || exponent.stripTrailingZeros().scale() <= 0;
+        if (base.signum() == 0) {
+            if (exponent.signum() < 0) {
+                return null;
+            }
+            return exponent.signum() == 0 ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        if (base.signum() < 0 && !integral) {
+            return null;
+        }
+        if (exponent.signum() == 0 || base.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ONE;
+        }
+        // Estimate the magnitude of exponent * ln|base|, and give results far out of range directly, as a result the formatter shows as an error, or as zero.
+        double magnitude = log10(exponent.abs()) + log10AbsLn(base.abs());
+        boolean negative = base.signum() < 0 && exponent.toBigInteger().testBit(0);
+        if (magnitude > LOG10_MAX_POWER_LOG) {
+            if ((exponent.signum() > 0) != (base.abs().compareTo(BigDecimal.ONE) > 0)) {
+                return BigDecimal.ZERO;
+            }
+            BigDecimal result = BigDecimal.ONE.scaleByPowerOfTen(2 * MAX_EXPONENT);
+            return negative ? result.negate() : result;
+        }
+        if (integral && exponent.abs().compareTo(BigDecimal.valueOf(MAX_INTEGER_EXPONENT)) <= 0) {
+            // Repeated squaring loses up to two digits for each squaring, so the guard digits grow with the number of bits of the exponent.
+            int n = exponent.intValueExact();
+            MathContext working = context(context.getPrecision() + GUARD_DIGITS + 32 - Integer.numberOfLeadingZeros(Math.abs(n)));
+            return base.pow(n, working).round(context);
+        }
+        // Compute exp(exponent * ln|base|), with enough digits in the logarithm that the product has the requested precision.
+        int digits = context.getPrecision() + GUARD_DIGITS + Math.max(0, (int)Math.ceil(magnitude) + 1);
+        MathContext working = context(digits);
+        BigDecimal result = exp(exponent.multiply(ln(base.abs(), working), working), working);
+        return (negative ? result.negate() : result).round(context);
+    }
+
+    // Natural logarithm of a positive number.
+    public static BigDecimal ln(BigDecimal x, MathContext context) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("Logarithm of a non-positive number");
+        }
+        if (x.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ZERO;
+        }
+        // Write x as m 10^e with m in [1, 10), so that ln(x) = ln(m) + e ln(10).
+        int e = x.precision() - x.scale() - 1;
+        int digits = context.getPrecision() + GUARD_DIGITS + Integer.toString(Math.abs(e)).length();
+        // Near 1, ln(x) is close to x - 1, so it needs as many more digits as there are zeros after the decimal point of x - 1.
+        BigDecimal u = x.subtract(BigDecimal.ONE);
+        if (u.abs().compareTo(HALF) < 0) {
+            digits += Math.max(0, u.scale() - u.precision());
+        }
+        BigDecimal result = toDecimal(lnFixed(x.scaleByPowerOfTen(-e), bits(digits)), bits(digits), digits);
+        if (e != 0) {
+            result = result.add(ln10(digits).multiply(BigDecimal.valueOf(e)));
+        }
+        return result.round(context);
+    }
+
+    // Exponential of a number whose result is within the range of BigDecimal.
+    public static BigDecimal exp(BigDecimal x, MathContext context) {
+        if (x.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (!(Math.abs(x.doubleValue()) <= MAX_EXP_ARGUMENT)) {
+            throw new ArithmeticException("Exponential out of range");
+        }
+        // Remove the power of ten, so that exp(x) = 10^q exp(r) with r in [0, ln(10)).
+        int digits = context.getPrecision() + GUARD_DIGITS + Math.max(0, x.precision() - x.scale());
+        BigDecimal ln10 = ln10(digits);
+        BigDecimal q = x.divide(ln10, context(digits)).setScale(0, RoundingMode.FLOOR);
+        BigDecimal r = x.subtract(ln10.multiply(q));
+        int bits = bits(context.getPrecision() + GUARD_DIGITS);
+        return toDecimal(expFixed(toFixed(r, bits), bits), bits, context.getPrecision() + GUARD_DIGITS).scaleByPowerOfTen(q.intValueExact()).round(context);
+    }
+
+    // Get ln(10) to at least the specified number of significant digits.
+    static BigDecimal ln10(int precision) {
+        BigDecimal value = ln10;
+        if (value.precision() < precision) {
+            synchronized (DecimalMath.class) {
+                value = ln10;
+                if (value.precision() < precision) {
+                    // Compute more digits than requested, so that slightly larger precisions reuse the value.
+                    int digits = precision + GUARD_DIGITS;
+                    value = toDecimal(lnFixed(BigDecimal.TEN, bits(digits)), bits(digits), digits).round(context(digits));
+                    ln10 = value;
+                }
+            }
+        }
+        return value.round(context(precision));
+    }
+
+    // Natural logarithm of a number from 1 to 10, as an integer scaled by 2^bits.
+    // Starting from the double logarithm, each step of Halley's method, y + 2 (x - exp(y)) / (x + exp(y)), triples the number of correct bits.
+    private static BigInteger lnFixed(BigDecimal x, int bits) {
+        int scale = bits + GUARD_BITS;
+        BigInteger value = toFixed(x, scale);
+        BigInteger result = toFixed(new BigDecimal(Math.log(x.doubleValue())), scale);
+        for (int correct = DOUBLE_BITS; correct < scale; correct = 3 * correct - GUARD_BITS / 8) {
+            // Each step needs only as many bits as it can make correct.
+            int working = Math.min(scale, 3 * correct + GUARD_BITS);
+            int shift = scale - working;
+            BigInteger y = result.shiftRight(shift);
+            BigInteger v = value.shiftRight(shift);
+            checkInterrupted();
+            BigInteger exp = expFixed(y, working);
+            result = result.add(v.subtract(exp).shiftLeft(working + 1).divide(v.add(exp)).shiftLeft(shift));
+        }
+        return result.shiftRight(GUARD_BITS);
+    }
+
+    // Exponential of a number from 0 to ln(10), both as integers scaled by 2^bits.
+    // The number is halved until the Taylor series converges quickly, and the sum is squared as many times.
+    private static BigInteger expFixed(BigInteger x, int bits) {
+        int halvings = (int)Math.sqrt(bits);
+        // Each squaring doubles the relative error, so the sum needs as many more bits.
+        int extra = halvings + GUARD_BITS;
+        int scale = bits + extra;
+        BigInteger r = x.shiftLeft(extra - halvings);
+        BigInteger term = BigInteger.ONE.shiftLeft(scale);
+        BigInteger sum = term;
+        for (int n = 1; term.signum() != 0; n++) {
+            checkInterrupted();
+            term = term.multiply(r).shiftRight(scale).divide(BigInteger.valueOf(n));
+            sum = sum.add(term);
+        }
+        for (int i = 0; i < halvings; i++) {
+            checkInterrupted();
+            sum = sum.multiply(sum).shiftRight(scale);
+        }
+        return sum.shiftRight(extra);
+    }
+
+    // Stop the calculation if the thread was interrupted, such as when a preview is no longer needed.
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Calculation interrupted");
+        }
+    }
+
+    // Number of bits of a fixed-point fraction with at least the specified number of decimal digits.
+    private static int bits(int digits) {
+        return (int)Math.ceil(digits * LOG2_10) + 1;
+    }
+
+    // Convert a decimal to an integer scaled by 2^bits, truncating.
+    private static BigInteger toFixed(BigDecimal x, int bits) {
+        BigInteger scaled = x.unscaledValue().shiftLeft(bits);
+        return x.scale() >= 0 ? scaled.divide(BigInteger.TEN.pow(x.scale())) : scaled.multiply(BigInteger.TEN.pow(-x.scale()));
+    }
+
+    // Convert an integer scaled by 2^bits to a decimal with the specified number of digits after the decimal point, truncating.
+    private static BigDecimal toDecimal(BigInteger fixed, int bits, int digits) {
+        return new BigDecimal(fixed.multiply(BigInteger.TEN.pow(digits)).shiftRight(bits), digits);
+    }
+
+    // Approximate base-10 logarithm of |ln(x)| for a positive number other than 1, including numbers too close to 1 to distinguish as doubles.
+    static double log10AbsLn(BigDecimal x) {
+        BigDecimal u = x.subtract(BigDecimal.ONE);
+        if (u.abs().compareTo(HALF) < 0) {
+            // ln(1 + u) is u times a factor from 0.8 to 1.4, which is 1 when u is too small for a double.
+            double d = u.doubleValue();
+            return log10(u.abs()) + (d != 0.0 ? Math.log10(Math.log1p(d) / d) : 0.0);
+        }
+        return Math.log10(Math.abs(log10(x) * Math.log(10)));
+    }
+
+    // Approximate base-10 logarithm of a positive number of any magnitude.
+    static double log10(BigDecimal x) {
+        int e = x.precision() - x.scale() - 1;
+        return e + Math.log10(x.scaleByPowerOfTen(-e).doubleValue());
+    }
+}
@@ -0,0 +1,134 @@
+import javafx.animation.AnimationTimer;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+
+// Updates the display once per pulse instead of once per action, so that any number of actions between two frames cost a single update.
+// The timer only runs while an update is pending, so no pulses are requested while the calculator is idle.
+// Also measures the time from the first action that changed the display to the end of layout of the pulse that shows it, just before the frame is drawn.
+// Used only on the JavaFX application thread.
+public class DisplayRenderer extends AnimationTimer {
+    // System property that, when "true", prints the latency statistics when the program exits.
+    public static final String LATENCY_PROPERTY = "calculator.latency";
+
+    private final Label display;
+    private final CalculatorEngine engine;
+    // Preview of the result, updated along with the display, if any.
+    private ResultPreview preview;
+    // Snapshot key of the engine when the preview was last requested, or null if none was.
+    private String previewKey;
+
+    // Whether the engine has changed since the display was last updated.
+    private boolean dirty;
+    // Whether the pulse in progress updated the display.
+    private boolean rendering;
+    // Time of the first action not yet shown, and of the action shown by the pulse in progress.
+    private long timePending;
+    private long timeRendering;
+    // Latency statistics, in nanoseconds.
+    private long latencyCount;
+    private long latencyTotal;
+    private long latencyMax;
+    // With instrumentation, time of the key event being handled, of the first key event not yet shown, and of the key event shown by the pulse in progress, or 0 if none.
+    private long timeKey;
+    private long timeKeyPending;
+    private long timeKeyRendering;
+
+    public DisplayRenderer(Label display, CalculatorEngine engine) {
+        this.display = display;
+        this.engine = engine;
+    }
+
+    // Measure latency at the end of layout in every pulse of the scene containing the display.
+    public void attach(Scene scene) {
+        scene.addPostLayoutPulseListener(this::measure);
+    }
+
+    // Update a preview of the result whenever the display is updated.
+    public void setPreview(ResultPreview preview) {
+        this.preview = preview;
+    }
+
+    // Request an update of the display on the next pulse.
+    public void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            timePending = System.nanoTime();
+            start();
+        }
+        if (timeKeyPending == 0) {
+            timeKeyPending = timeKey;
+        }
+    }
+
+    // With instrumentation, record that a key event began handling at the specified time, so that its latency is measured if it updates the display.
+    public void beginKey(long time) {
+        timeKey = time;
+    }
+
+    // Stop attributing updates to the key event.
+    public void endKey() {
+        timeKey = 0;
+    }
+
+    @Override
+    public void handle(long now) {
+        stop();
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        String text = engine.getDisplayText();
+        // Skip the update, and the layout it causes, if the text is the same.
+        if (!text.equals(display.getText())) {
+            display.setText(text);
+        }
+        // Request the preview again only if its operands changed, or if its calculation was cancelled, such as by a background calculation.
+        if (preview != null) {
+            String key = engine.getSnapshotKey();
+            if (!key.equals(previewKey) || !preview.isRequested()) {
+                previewKey = key;
+                preview.request();
+            }
+        }
+        rendering = true;
+        timeRendering = timePending;
+        timeKeyRendering = timeKeyPending;
+        timeKeyPending = 0;
+    }
+
+    // Record the latency of the update made in this pulse, if any.
+    private void measure() {
+        if (!rendering) {
+            return;
+        }
+        rendering = false;
+        long latency = System.nanoTime() - timeRendering;
+        latencyCount++;
+        latencyTotal += latency;
+        latencyMax = Math.max(latencyMax, latency);
+        if (Instrumentation.ENABLED && timeKeyRendering != 0) {
+            Instrumentation.record(Instrumentation.ACTION_KEY, null, timeKeyRendering);
+            timeKeyRendering = 0;
+        }
+    }
+
+    // Number of updates measured.
+    public long getLatencyCount() {
+        return latencyCount;
+    }
+
+    // Mean latency of the measured updates, in milliseconds.
+    public double getLatencyMean() {
+        return latencyCount == 0 ? 0.0 : latencyTotal / 1e6 / latencyCount;
+    }
+
+    // Greatest latency of the measured updates, in milliseconds.
+    public double getLatencyMax() {
+        return latencyMax / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Display latency: %d updates, mean %.3f ms, max %.3f ms", getLatencyCount(), getLatencyMean(), getLatencyMax());
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A bounded cache of compiled expressions keyed by their text, evicting the least recently used expression when full.
+// An instance is not thread-safe, but the compiled expressions it returns may be shared between threads.
+public class ExpressionCache {
+    private final LinkedHashMap<String, CompiledExpression> expressions;
+
+    public ExpressionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        // Iterate in access order so that the eldest entry is the least recently used.
+        expressions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Get the compiled form of an expression, compiling it if it is not cached.
+    public CompiledExpression get(String expression) {
+        CompiledExpression compiled = expressions.get(expression);
+        if (compiled == null) {
+            compiled = CompiledExpression.compile(expression);
+            expressions.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+    public int size() {
+        return expressions.size();
+    }
+
+    public void clear() {
+        expressions.clear();
+    }
+}
@@ -0,0 +1,208 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Latency histograms of engine actions and key presses by operator, counts of results shown as errors, and JFR events of both.
+// Enabled by a system property read once, so that when disabled, the checks of ENABLED around each call are removed by the compiler.
+// The statistics are available through JMX and the stats overlay, and may be recorded from any thread.
+public final class Instrumentation {
+    // System property that, when "true", enables instrumentation.
+    public static final String PROPERTY = "calculator.instrumentation";
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+    // Name under which the statistics are registered with the platform MBean server.
+    public static final String OBJECT_NAME = "Calculator:type=Stats";
+
+    // Actions that are timed.
+    public static final int ACTION_ENTER = 0;
+    public static final int ACTION_OPERATE = 1;
+    public static final int ACTION_SOLVE = 2;
+    public static final int ACTION_CALCULATE = 3;
+    public static final int ACTION_DISPLAY = 4;
+    // From a key event to the end of layout of the pulse that shows its result.
+    public static final int ACTION_KEY = 5;
+    // Solving a snapshot in the background, for a preview of the result or before solving in precision mode.
+    public static final int ACTION_BACKGROUND_SOLVE = 6;
+    private static final String[] ACTION_NAMES = {"enter", "operate", "solve", "calculate", "getDisplayText", "key", "background solve"};
+
+    // Operators that latencies are recorded by, after the absence of one.
+    private static final String[] OPERATORS = {"", CalculatorEngine.PLUS_SYMBOL, CalculatorEngine.MINUS_SYMBOL, CalculatorEngine.MULTIPLY_SYMBOL, CalculatorEngine.DIVIDE_SYMBOL, CalculatorEngine.POWER_SYMBOL};
+
+    // Histograms by action and operator, created only when enabled.
+    private static final LatencyHistogram[][] HISTOGRAMS = ENABLED ? histograms() : null;
+    private static final AtomicLong OVERFLOWS = new AtomicLong();
+    private static final AtomicLong UNDERFLOWS = new AtomicLong();
+    private static final AtomicLong NANS = new AtomicLong();
+    private static final AtomicLong INFINITIES = new AtomicLong();
+
+    private Instrumentation() {}
+
+    // Record the latency of an action that began at the specified time from System.nanoTime, with the operator it calculated, if any.
+    public static void record(int action, String operator, long start) {
+        long latency = System.nanoTime() - start;
+        int index = operatorIndex(operator);
+        HISTOGRAMS[action][index].record(latency);
+        ActionEvent event = new ActionEvent();
+        if (event.isEnabled()) {
+            event.action = ACTION_NAMES[action];
+            event.operator = OPERATORS[index];
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    // Count a formatted result if it is shown as an error.
+    public static void countResult(char[] chars, int length) {
+        int i = length > 0 && chars[0] == '-' ? 1 : 0;
+        if (i >= length) {
+            return;
+        }
+        switch (chars[i]) {
+            case 'O':
+                OVERFLOWS.incrementAndGet();
+                break;
+            case 'U':
+                UNDERFLOWS.incrementAndGet();
+                break;
+            case 'N':
+                NANS.incrementAndGet();
+                break;
+            case 'I':
+                INFINITIES.incrementAndGet();
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Register the statistics with the platform MBean server, if not already registered.
+    public static void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Stats(), name);
+            }
+        }
+        catch (JMException e) {
+            System.err.println("Could not register statistics: " + e.getMessage());
+        }
+    }
+
+    // Describe the statistics in lines of text, as shown in the stats overlay.
+    public static String summary() {
+        if (!ENABLED) {
+            return "Instrumentation disabled, start with -D" + PROPERTY + "=true";
+        }
+        StringBuilder builder = new StringBuilder(String.format("%-18s %8s %9s %9s %9s %9s", "Action", "Count", "Mean", "p50", "p99", "Max"));
+        for (String line : latencies()) {
+            builder.append('\n').append(line);
+        }
+        builder.append(String.format("%nOverflow %d, Underflow %d, NaN %d, Infinity %d", OVERFLOWS.get(), UNDERFLOWS.get(), NANS.get(), INFINITIES.get()));
+        return builder.toString();
+    }
+
+    // Lines for each action and operator with recorded latencies, in microseconds.
+    private static String[] latencies() {
+        List<String> lines = new ArrayList<>();
+        if (ENABLED) {
+            for (int action = 0; action < HISTOGRAMS.length; action++) {
+                for (int index = 0; index < OPERATORS.length; index++) {
+                    LatencyHistogram histogram = HISTOGRAMS[action][index];
+                    long count = histogram.count();
+                    if (count > 0) {
+                        lines.add(String.format("%-18s %8d %9.1f %9.1f %9.1f %9.1f", (ACTION_NAMES[action] + " " + OPERATORS[index]).trim(), count,
+                                histogram.mean() / 1e3, histogram.percentile(0.5) / 1e3, histogram.percentile(0.99) / 1e3, histogram.max() / 1e3));
+                    }
+                }
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    // Index of an operator in OPERATORS, or 0 if it is not an operator.
+    private static int operatorIndex(String operator) {
+        for (int i = 1; i < OPERATORS.length; i++) {
+            if (OPERATORS[i].equals(operator)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static LatencyHistogram[][] histograms() {
+        LatencyHistogram[][] histograms = new LatencyHistogram[ACTION_NAMES.length][OPERATORS.length];
+        for (LatencyHistogram[] row : histograms) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new LatencyHistogram();
+            }
+        }
+        return histograms;
+    }
+
+    // JFR event of a timed action, given its own latency because it is created only after the action.
+    @Name("calculator.Action")
+    @Label("Calculator Action")
+    @Category("Calculator")
+    @Description("Latency of an engine action or of a key press until the display shows it")
+    static final class ActionEvent extends Event {
+        @Label("Action")
+        String action;
+        @Label("Operator")
+        String operator;
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    private static final class Stats implements CalculatorStatsMXBean {
+        @Override
+        public long getOverflowCount() {
+            return OVERFLOWS.get();
+        }
+
+        @Override
+        public long getUnderflowCount() {
+            return UNDERFLOWS.get();
+        }
+
+        @Override
+        public long getNaNCount() {
+            return NANS.get();
+        }
+
+        @Override
+        public long getInfinityCount() {
+            return INFINITIES.get();
+        }
+
+        @Override
+        public String[] getLatencies() {
+            return latencies();
+        }
+
+        @Override
+        public void reset() {
+            if (ENABLED) {
+                for (LatencyHistogram[] row : HISTOGRAMS) {
+                    for (LatencyHistogram histogram : row) {
+                        histogram.reset();
+                    }
+                }
+            }
+            OVERFLOWS.set(0);
+            UNDERFLOWS.set(0);
+            NANS.set(0);
+            INFINITIES.set(0);
+        }
+    }
+}
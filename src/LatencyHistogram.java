@@ -0,0 +1,97 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Counts of latencies in buckets of logarithmic width, which any number of threads can record into without locking.
+// Each power of two is divided into SUB_BUCKETS buckets, so percentiles are within 1 / SUB_BUCKETS of the recorded latencies.
+public class LatencyHistogram {
+    // Number of buckets for each power of two, as a power of two.
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Number of buckets, covering every non-negative long.
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // Record a latency in nanoseconds.
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucket(nanos));
+        total.addAndGet(nanos);
+        long previous = max.get();
+        while (nanos > previous && !max.compareAndSet(previous, nanos)) {
+            previous = max.get();
+        }
+    }
+
+    // Number of latencies recorded.
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    // Mean of the latencies recorded, in nanoseconds.
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0.0 : (double)total.get() / count;
+    }
+
+    // Greatest latency recorded, in nanoseconds.
+    public long max() {
+        return max.get();
+    }
+
+    // Latency in nanoseconds that the specified fraction of the recorded latencies do not exceed, as the upper bound of its bucket.
+    public long percentile(double fraction) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    // Discard the recorded latencies.
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    // Index of the bucket of a latency. Latencies below SUB_BUCKETS have a bucket each.
+    static int bucket(long nanos) {
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent < SUB_BUCKET_BITS) {
+            return (int)nanos;
+        }
+        int sub = (int)(nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Largest latency in a bucket.
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return lower + width - 1 < 0 ? Long.MAX_VALUE : lower + width - 1;
+    }
+}
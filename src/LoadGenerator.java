@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sends calculations to a CalculationServer on this computer from several connections at once, and reports the rate at which results arrive.
+// Each connection keeps a fixed number of calculations in flight, sending as many more as results it receives.
+public class LoadGenerator {
+    // Calculations sent in turn, covering each operator, decimals, and results shown as errors.
+    static final String[] CALCULATIONS = {"12.5 + 7.25", "1000000 - 0.01", "3.14159 * 2", "22 / 7", "2 ^ 10", "0.1 + 0.2", "9e18 * 10", "7 ^ 0.5"};
+    static final int DEFAULT_CONNECTIONS = 4;
+    static final int DEFAULT_SECONDS = 10;
+    static final int DEFAULT_DEPTH = 256;
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : CalculationServer.DEFAULT_PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CONNECTIONS;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_DEPTH;
+
+        byte[][] lines = new byte[CALCULATIONS.length][];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = (CALCULATIONS[i] + "\n").getBytes(StandardCharsets.US_ASCII);
+        }
+        AtomicLong results = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread[] threads = new Thread[connections];
+        for (int i = 0; i < connections; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    results.addAndGet(run(port, lines, depth, deadline));
+                }
+                catch (IOException e) {
+                    System.err.println("Connection failed: " + e.getMessage());
+                }
+            });
+            threads[i].start();
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d results in %.1f s: %.0f per second over %d connections with %d in flight each%n", results.get(), elapsed, results.get() / elapsed, connections, depth);
+    }
+
+    // Send calculations on one connection until the deadline, then wait for the remaining results, and return the number of results received.
+    static long run(int port, byte[][] lines, int depth, long deadline) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer output = ByteBuffer.allocateDirect(CalculationServer.INPUT_BUFFER_SIZE);
+            ByteBuffer input = ByteBuffer.allocateDirect(CalculationServer.INPUT_BUFFER_SIZE);
+            long sent = 0;
+            long received = 0;
+            int next = 0;
+            int toSend = depth;
+            while (true) {
+                // Send as many calculations as results were received, until the deadline.
+                if (System.nanoTime() < deadline) {
+                    output.clear();
+                    for (int i = 0; i < toSend && output.remaining() >= lines[next].length; i++) {
+                        output.put(lines[next]);
+                        next = (next + 1) % lines.length;
+                        sent++;
+                    }
+                    output.flip();
+                    while (output.hasRemaining()) {
+                        channel.write(output);
+                    }
+                }
+                if (received == sent) {
+                    return received;
+                }
+                input.clear();
+                if (channel.read(input) < 0) {
+                    throw new IOException("Connection closed by server");
+                }
+                toSend = 0;
+                for (int i = 0; i < input.position(); i++) {
+                    if (input.get(i) == '\n') {
+                        toSend++;
+                    }
+                }
+                received += toSend;
+            }
+        }
+    }
+}
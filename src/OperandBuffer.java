@@ -0,0 +1,410 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+
+// An operand that is edited one character at a time in a reusable character buffer.
+// The numeric value is maintained as characters are added and removed so that the text does not need to be parsed when solving.
+// The value always matches what Double.parseDouble returns for the text, or zero if the text is not a number.
+public class OperandBuffer implements CharSequence {
+    // Initial number of characters the buffer can hold before growing.
+    static final int INITIAL_CAPACITY = 32;
+    // Largest significand that converts to a double without rounding.
+    static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+    // Largest significand that can have another digit appended without overflowing.
+    static final long MAX_APPENDABLE_SIGNIFICAND = (Long.MAX_VALUE - 9) / 10;
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private int length;
+
+    // Whether the text is a plain decimal number: an optional leading hyphen, digits, and at most one decimal point.
+    private boolean plain = true;
+    // Whether the text begins with a hyphen.
+    private boolean negative;
+    // Position of the decimal point, or -1 if there is none.
+    private int decimalIndex = -1;
+    // Number of digits in the text.
+    private int digitCount;
+    // Number of digits following the decimal point.
+    private int fractionDigits;
+    // All digits in the text read as one integer, ignoring the decimal point.
+    private long significand;
+    // Whether the digits no longer fit in the significand.
+    private boolean significandOverflow;
+    // Value parsed from the text when it cannot be computed from the significand, and whether it is up to date.
+    private double parsedValue;
+    private boolean parsedValid;
+    // Full value of a result whose text only approximates it, such as a fraction in exact mode or a decimal in precision mode, or null if the text is the full value.
+    private Number exact;
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    // Check whether the text consists of only the specified character.
+    public boolean isOnly(char c) {
+        return length == 1 && chars[0] == c;
+    }
+
+    // Get the position of the first occurrence of the specified character, or -1 if it does not occur.
+    public int indexOf(char c) {
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Get the numeric value of the text, or zero if it is not a number.
+    public double doubleValue() {
+        if (plain) {
+            // Text such as "", "-", and "." contains no digits and is not a number.
+            if (digitCount == 0) {
+                return 0.0;
+            }
+            // Both the significand and the power of ten are exact, so a single division rounds correctly.
+            if (!significandOverflow && significand <= MAX_EXACT_SIGNIFICAND && fractionDigits < DecimalFormatter.POWERS_OF_TEN.length) {
+                double value = fractionDigits == 0 ? significand : significand / DecimalFormatter.POWERS_OF_TEN[fractionDigits];
+                return negative ? -value : value;
+            }
+        }
+        if (!parsedValid) {
+            try {
+                parsedValue = Double.parseDouble(toString());
+            }
+            catch (NumberFormatException e) {
+                parsedValue = 0.0;
+            }
+            parsedValid = true;
+        }
+        return parsedValue;
+    }
+
+    // Get the exact value of the text as a fraction, or null if it is not a finite number.
+    public Rational rationalValue() {
+        if (exact instanceof Rational) {
+            return (Rational)exact;
+        }
+        if (exact instanceof BigDecimal) {
+            return Rational.valueOf((BigDecimal)exact);
+        }
+        if (plain) {
+            if (digitCount == 0) {
+                return Rational.ZERO;
+            }
+            if (!significandOverflow && fractionDigits < DecimalFormatter.LONG_POWERS_OF_TEN.length) {
+                return Rational.of(negative ? -significand : significand, DecimalFormatter.LONG_POWERS_OF_TEN[fractionDigits]);
+            }
+        }
+        try {
+            return Rational.valueOf(new BigDecimal(toString()));
+        }
+        catch (NumberFormatException e) {
+            // Other text that Double.parseDouble accepts, or that is not a number and has the value zero.
+            double value = doubleValue();
+            return Double.isFinite(value) ? Rational.valueOf(value) : null;
+        }
+    }
+
+    // Get the value of the text as a decimal, rounding a fraction to the specified context, or null if it is not a finite number.
+    public BigDecimal decimalValue(MathContext context) {
+        if (exact instanceof BigDecimal) {
+            return (BigDecimal)exact;
+        }
+        if (exact instanceof Rational) {
+            return ((Rational)exact).toBigDecimal(context);
+        }
+        if (plain) {
+            if (digitCount == 0) {
+                return BigDecimal.ZERO;
+            }
+            if (!significandOverflow) {
+                return BigDecimal.valueOf(negative ? -significand : significand, fractionDigits);
+            }
+        }
+        try {
+            return new BigDecimal(toString());
+        }
+        catch (NumberFormatException e) {
+            double value = doubleValue();
+            return Double.isFinite(value) ? new BigDecimal(value) : null;
+        }
+    }
+
+    // Remove all characters.
+    public void clear() {
+        length = 0;
+        resetValue();
+        exact = null;
+    }
+
+    // Add a character to the end.
+    public void append(char c) {
+        if (length == chars.length) {
+            grow(length + 1);
+        }
+        chars[length++] = c;
+        parsedValid = false;
+        exact = null;
+        if (plain) {
+            appendValue(c, length - 1);
+        }
+    }
+
+    // Remove the last character, if any.
+    public void removeLast() {
+        if (length == 0) {
+            return;
+        }
+        char c = chars[--length];
+        parsedValid = false;
+        exact = null;
+        if (!plain || significandOverflow) {
+            rescan();
+        }
+        else if (isDigit(c)) {
+            digitCount--;
+            significand /= 10;
+            if (decimalIndex >= 0) {
+                fractionDigits--;
+            }
+        }
+        else if (c == '.') {
+            decimalIndex = -1;
+        }
+        else {
+            negative = false;
+        }
+    }
+
+    // Remove the first character, if any.
+    public void removeFirst() {
+        if (length == 0) {
+            return;
+        }
+        char c = chars[0];
+        System.arraycopy(chars, 1, chars, 0, --length);
+        parsedValid = false;
+        // Removing the sign negates the exact value.
+        exact = c == '-' ? negate(exact) : null;
+        if (plain && c == '-') {
+            negative = false;
+            if (decimalIndex >= 0) {
+                decimalIndex--;
+            }
+        }
+        else {
+            rescan();
+        }
+    }
+
+    // Add a character to the beginning.
+    public void prepend(char c) {
+        if (length == chars.length) {
+            grow(length + 1);
+        }
+        // Adding a sign negates the exact value, unless the text already has one.
+        exact = c == '-' && (length == 0 || chars[0] != '-') ? negate(exact) : null;
+        System.arraycopy(chars, 0, chars, 1, length++);
+        chars[0] = c;
+        parsedValid = false;
+        if (plain && c == '-' && !negative) {
+            negative = true;
+            if (decimalIndex >= 0) {
+                decimalIndex++;
+            }
+        }
+        else {
+            rescan();
+        }
+    }
+
+    // Replace the text with a copy of another operand.
+    public void copyFrom(OperandBuffer other) {
+        if (chars.length < other.length) {
+            grow(other.length);
+        }
+        System.arraycopy(other.chars, 0, chars, 0, other.length);
+        length = other.length;
+        plain = other.plain;
+        negative = other.negative;
+        decimalIndex = other.decimalIndex;
+        digitCount = other.digitCount;
+        fractionDigits = other.fractionDigits;
+        significand = other.significand;
+        significandOverflow = other.significandOverflow;
+        parsedValue = other.parsedValue;
+        parsedValid = other.parsedValid;
+        exact = other.exact;
+    }
+
+    // Replace the text with the specified text.
+    public void set(CharSequence text) {
+        clear();
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    // Replace the text with characters from an array, whose numeric value is already known.
+    public void set(char[] text, int textLength, double value) {
+        set(text, textLength, value, null);
+    }
+
+    // Replace the text with characters from an array, whose numeric value is already known, and keep an exact value that the text only approximates, if not null.
+    public void set(char[] text, int textLength, double value, Number exactValue) {
+        if (chars.length < textLength) {
+            grow(textLength);
+        }
+        System.arraycopy(text, 0, chars, 0, textLength);
+        length = textLength;
+        rescan();
+        parsedValue = value;
+        parsedValid = true;
+        exact = exactValue;
+    }
+
+    // Replace the text with the decimal digits of an integer.
+    public void set(long value) {
+        clear();
+        if (value < 0) {
+            append('-');
+        }
+        // Count the digits, working with negative values so that Long.MIN_VALUE does not overflow.
+        long remaining = value < 0 ? value : -value;
+        int digits = 1;
+        for (long i = remaining / 10; i != 0; i /= 10) {
+            digits++;
+        }
+        if (chars.length < length + digits) {
+            grow(length + digits);
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char)('0' - remaining % 10);
+            remaining /= 10;
+        }
+        length += digits;
+        rescan();
+        exact = null;
+    }
+
+    // Write the text and its numeric value into a buffer, and return whether there was enough space.
+    public boolean write(ByteBuffer buffer) {
+        if (buffer.remaining() < Integer.BYTES + Double.BYTES + length * Character.BYTES) {
+            return false;
+        }
+        buffer.putInt(length);
+        buffer.putDouble(doubleValue());
+        for (int i = 0; i < length; i++) {
+            buffer.putChar(chars[i]);
+        }
+        return true;
+    }
+
+    // Replace the text with text and its numeric value read from a buffer, as written by write().
+    public void read(ByteBuffer buffer) {
+        int textLength = buffer.getInt();
+        double value = buffer.getDouble();
+        if (textLength < 0 || textLength > buffer.remaining() / Character.BYTES) {
+            throw new IllegalArgumentException("Invalid operand length: " + textLength);
+        }
+        if (chars.length < textLength) {
+            grow(textLength);
+        }
+        for (int i = 0; i < textLength; i++) {
+            chars[i] = buffer.getChar();
+        }
+        length = textLength;
+        rescan();
+        parsedValue = value;
+        parsedValid = true;
+        exact = null;
+    }
+
+    // Recompute the numeric state from the entire text.
+    private void rescan() {
+        resetValue();
+        for (int i = 0; i < length && plain; i++) {
+            appendValue(chars[i], i);
+        }
+    }
+
+    // Reset the numeric state to that of an empty text.
+    private void resetValue() {
+        plain = true;
+        negative = false;
+        decimalIndex = -1;
+        digitCount = 0;
+        fractionDigits = 0;
+        significand = 0;
+        significandOverflow = false;
+        parsedValid = false;
+    }
+
+    // Update the numeric state with a character added at the specified position at the end of the text.
+    private void appendValue(char c, int index) {
+        if (isDigit(c)) {
+            digitCount++;
+            if (decimalIndex >= 0) {
+                fractionDigits++;
+            }
+            if (significand > MAX_APPENDABLE_SIGNIFICAND) {
+                significandOverflow = true;
+            }
+            else {
+                significand = significand * 10 + (c - '0');
+            }
+        }
+        else if (c == '.' && decimalIndex < 0) {
+            decimalIndex = index;
+        }
+        else if (c == '-' && index == 0) {
+            negative = true;
+        }
+        else {
+            plain = false;
+        }
+    }
+
+    // Enlarge the buffer to hold at least the specified number of characters.
+    private void grow(int capacity) {
+        char[] larger = new char[Math.max(capacity, chars.length * 2)];
+        System.arraycopy(chars, 0, larger, 0, length);
+        chars = larger;
+    }
+
+    // Get the negation of an exact value, or null if there is none.
+    private static Number negate(Number value) {
+        if (value instanceof Rational) {
+            return ((Rational)value).negate();
+        }
+        return value instanceof BigDecimal ? ((BigDecimal)value).negate() : null;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Evaluates large sets of calculations across all cores by splitting them into chunks with fork-join.
+// Each result is computed by CalculatorEngine.evaluate, so it matches calculate() exactly, and results are returned in input order.
+// An instance may be used by any number of threads at once.
+public class ParallelEvaluator {
+    // Number of calculations evaluated by a task without splitting it further.
+    static final int CHUNK_SIZE = 1 << 13;
+    // Number of table values computed in parallel before they are passed to the consumer.
+    static final int TABLE_SEGMENT_SIZE = 1 << 20;
+    // Relative difference from a whole number of steps within which the end of a table is taken to be reached exactly.
+    static final double TABLE_STEP_TOLERANCE = 1e-9;
+
+    // Receives consecutive values of a table in order.
+    public interface TableConsumer {
+        // Accept the values of the table starting at the specified index, found in the first count elements of the array.
+        // The array is reused for the next segment after this returns.
+        void accept(long firstIndex, double[] values, int count);
+    }
+
+    private final ForkJoinPool pool;
+
+    // Create an evaluator that uses the common pool, which has a thread for each core.
+    public ParallelEvaluator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Evaluate the operator on each pair of operands and return the results in the same order.
+    public double[] evaluate(String operator, double[] operandsFirst, double[] operandsSecond) {
+        double[] results = new double[operandsFirst.length];
+        evaluate(operator, operandsFirst, operandsSecond, results);
+        return results;
+    }
+
+    // Evaluate the operator on each pair of operands and store the results in the same order.
+    public void evaluate(String operator, double[] operandsFirst, double[] operandsSecond, double[] results) {
+        if (operandsSecond.length != operandsFirst.length || results.length != operandsFirst.length) {
+            throw new IllegalArgumentException("Operand and result arrays must have the same length");
+        }
+        pool.invoke(new PairTask(operator, operandsFirst, operandsSecond, results, 0, results.length));
+    }
+
+    // Compute "x operator operand" for x = start + i * step, for i from 0 to count - 1, and return the values in order.
+    public double[] table(String operator, double start, double step, int count, double operand) {
+        double[] results = new double[count];
+        pool.invoke(new TableTask(operator, start, step, 0, operand, results, 0, count));
+        return results;
+    }
+
+    // Compute "x operator operand" for x = start + i * step, for i from 0 to count - 1, and pass the values to the consumer in order.
+    // Tables of any size are computed with constant memory, one segment at a time.
+    public void table(String operator, double start, double step, long count, double operand, TableConsumer consumer) {
+        double[] segment = new double[(int)Math.min(TABLE_SEGMENT_SIZE, count)];
+        for (long firstIndex = 0; firstIndex < count; firstIndex += segment.length) {
+            int segmentCount = (int)Math.min(segment.length, count - firstIndex);
+            pool.invoke(new TableTask(operator, start, step, firstIndex, operand, segment, 0, segmentCount));
+            consumer.accept(firstIndex, segment, segmentCount);
+        }
+    }
+
+    // Get the number of values in a table from start to end, inclusive, with the specified step.
+    // The end is included if it is reached within roundoff error, as 0.3 is from 0 in steps of 0.1.
+    public static long tableSize(double start, double end, double step) {
+        if (!Double.isFinite(start) || !Double.isFinite(end) || !Double.isFinite(step)) {
+            throw new IllegalArgumentException("Table bounds and step must be finite: " + start + ", " + end + ", " + step);
+        }
+        if (step == 0.0) {
+            throw new IllegalArgumentException("Table step must not be zero");
+        }
+        double steps = (end - start) / step;
+        if (steps < 0) {
+            throw new IllegalArgumentException("Table step " + step + " does not lead from " + start + " to " + end);
+        }
+        if (steps >= Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Table from " + start + " to " + end + " in steps of " + step + " has too many values");
+        }
+        double nearest = Math.rint(steps);
+        return (long)(Math.abs(steps - nearest) <= TABLE_STEP_TOLERANCE * Math.max(1, steps) ? nearest : Math.floor(steps)) + 1;
+    }
+
+    // Evaluates a range of operand pairs, splitting it in half until it is small enough.
+    private static final class PairTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String operator;
+        private final double[] operandsFirst;
+        private final double[] operandsSecond;
+        private final double[] results;
+        private final int from;
+        private final int to;
+
+        PairTask(String operator, double[] operandsFirst, double[] operandsSecond, double[] results, int from, int to) {
+            this.operator = operator;
+            this.operandsFirst = operandsFirst;
+            this.operandsSecond = operandsSecond;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                DecimalFormatter formatter = new DecimalFormatter();
+                for (int i = from; i < to; i++) {
+                    results[i] = CalculatorEngine.evaluate(operator, operandsFirst[i], operandsSecond[i], formatter);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                    new PairTask(operator, operandsFirst, operandsSecond, results, from, middle),
+                    new PairTask(operator, operandsFirst, operandsSecond, results, middle, to)
+                );
+            }
+        }
+    }
+
+    // Computes a range of table values, splitting it in half until it is small enough.
+    // The value at position i of the results is that of table index firstIndex + i.
+    private static final class TableTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String operator;
+        private final double start;
+        private final double step;
+        private final long firstIndex;
+        private final double operand;
+        private final double[] results;
+        private final int from;
+        private final int to;
+
+        TableTask(String operator, double start, double step, long firstIndex, double operand, double[] results, int from, int to) {
+            this.operator = operator;
+            this.start = start;
+            this.step = step;
+            this.firstIndex = firstIndex;
+            this.operand = operand;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                DecimalFormatter formatter = new DecimalFormatter();
+                for (int i = from; i < to; i++) {
+                    // Compute each value from its index rather than by accumulating steps, so that error does not build up.
+                    double x = start + (firstIndex + i) * step;
+                    results[i] = CalculatorEngine.evaluate(operator, x, operand, formatter);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                    new TableTask(operator, start, step, firstIndex, operand, results, from, middle),
+                    new TableTask(operator, start, step, firstIndex, operand, results, middle, to)
+                );
+            }
+        }
+    }
+
+    // Measure the time of parallel evaluation and of evaluation on a single thread for each operator.
+    // The speedup is shown only if the common pool has more than one thread, since it cannot be measured otherwise.
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        double[] operandsFirst = new double[count];
+        double[] operandsSecond = new double[count];
+        for (int i = 0; i < count; i++) {
+            operandsFirst[i] = (i % 20_000) / 100.0 - 100;
+            operandsSecond[i] = (i % 997) / 10.0 + 0.5;
+        }
+        ForkJoinPool single = new ForkJoinPool(1);
+        ParallelEvaluator sequential = new ParallelEvaluator(single);
+        ParallelEvaluator parallel = new ParallelEvaluator();
+        String[] operators = {CalculatorEngine.PLUS_SYMBOL, CalculatorEngine.MINUS_SYMBOL, CalculatorEngine.MULTIPLY_SYMBOL, CalculatorEngine.DIVIDE_SYMBOL, CalculatorEngine.POWER_SYMBOL};
+        int threads = ForkJoinPool.commonPool().getParallelism();
+        System.out.printf("%d calculations, %d cores, %d parallel threads%n", count, Runtime.getRuntime().availableProcessors(), threads);
+        if (threads < 2) {
+            System.out.println("Parallel evaluation uses a single thread on this computer, so no speedup is measured");
+        }
+        for (String operator : operators) {
+            double[] resultsSequential = new double[count];
+            double[] resultsParallel = new double[count];
+            long timeSequential = Long.MAX_VALUE;
+            long timeParallel = Long.MAX_VALUE;
+            // Take the best of several runs so that warmup does not count.
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                sequential.evaluate(operator, operandsFirst, operandsSecond, resultsSequential);
+                timeSequential = Math.min(timeSequential, System.nanoTime() - start);
+                start = System.nanoTime();
+                parallel.evaluate(operator, operandsFirst, operandsSecond, resultsParallel);
+                timeParallel = Math.min(timeParallel, System.nanoTime() - start);
+            }
+            boolean identical = Arrays.equals(resultsSequential, resultsParallel);
+            String speedup = threads > 1 ? String.format(", speedup %.2fx", (double)timeSequential / timeParallel) : "";
+            System.out.printf("%s: sequential %.1f ms, parallel %.1f ms%s%s%n",
+                operator, timeSequential / 1e6, timeParallel / 1e6, speedup, identical ? "" : " (results differ)");
+        }
+        single.shutdown();
+    }
+}
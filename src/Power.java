@@ -0,0 +1,95 @@
+// Raises numbers to powers with exactly the same results as Math.pow, but computes integer powers of integers directly.
+// Math.pow returns the exact result whenever both arguments are integers and the result can be represented exactly as a double.
+// Those results are computed here by repeated squaring or, for powers of two, by adjusting the exponent, and all other cases use Math.pow.
+public final class Power {
+    // Largest magnitude below which every integer is represented exactly as a double.
+    static final double MAX_EXACT_INTEGER = 0x1p53;
+    // Number of bits in the largest integers represented exactly as doubles.
+    static final int EXACT_INTEGER_BITS = 53;
+    // Range of exponents of powers of two that are doubles.
+    static final int MIN_POWER_OF_TWO = -1074;
+    static final int MAX_POWER_OF_TWO = Double.MAX_EXPONENT;
+
+    private Power() {}
+
+    // Raise a number to a power, as Math.pow does.
+    public static double pow(double base, double exponent) {
+        // Zero bases are excluded because the sign of the result depends on the sign of the zero.
+        if (base != 0.0 && Math.abs(base) <= MAX_EXACT_INTEGER && Math.abs(exponent) <= MAX_EXACT_INTEGER) {
+            long integerBase = (long)base;
+            long integerExponent = (long)exponent;
+            if (integerBase == base && integerExponent == exponent) {
+                long magnitude = Math.abs(integerBase);
+                // Powers of powers of two, including negative powers, are powers of two.
+                if ((magnitude & (magnitude - 1)) == 0) {
+                    long scale = Long.numberOfTrailingZeros(magnitude) * integerExponent;
+                    if (scale >= MIN_POWER_OF_TWO && scale <= MAX_POWER_OF_TWO) {
+                        double result = Math.scalb(1.0, (int)scale);
+                        return integerBase < 0 && (integerExponent & 1) != 0 ? -result : result;
+                    }
+                }
+                else if (integerExponent > 0) {
+                    // The result is less than 2^(bits * exponent), so if that is at most 2^53, every product is an exact integer.
+                    long bits = Long.SIZE - Long.numberOfLeadingZeros(magnitude);
+                    if (bits * integerExponent <= EXACT_INTEGER_BITS) {
+                        return squarePower(base, integerExponent);
+                    }
+                    // The result is at least 2^((bits - 1) * exponent), so below that bound it may still fit in a long.
+                    if ((bits - 1) * integerExponent < Long.SIZE - 1) {
+                        double result = integerPower(integerBase, integerExponent);
+                        if (!Double.isNaN(result)) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+        return Math.pow(base, exponent);
+    }
+
+    // Raise a number to a positive integer power by repeated squaring, which is exact if every product is an integer below 2^53.
+    static double squarePower(double base, long exponent) {
+        double result = 1.0;
+        double square = base;
+        while (true) {
+            if ((exponent & 1) != 0) {
+                result *= square;
+            }
+            exponent >>>= 1;
+            if (exponent == 0) {
+                return result;
+            }
+            square *= square;
+        }
+    }
+
+    // Raise an integer to a positive integer power by repeated squaring, or return NaN if the result is not exactly representable as a double.
+    static double integerPower(long base, long exponent) {
+        long result = 1;
+        long square = base;
+        while (true) {
+            if ((exponent & 1) != 0) {
+                long product = result * square;
+                if (Math.multiplyHigh(result, square) != product >> 63) {
+                    return Double.NaN;
+                }
+                result = product;
+            }
+            exponent >>>= 1;
+            if (exponent == 0) {
+                break;
+            }
+            long product = square * square;
+            if (Math.multiplyHigh(square, square) != product >> 63) {
+                return Double.NaN;
+            }
+            square = product;
+        }
+        // The conversion is exact if it converts back to the same integer, except for Long.MAX_VALUE, which converts to 2^63.
+        double value = result;
+        if ((long)value != result || result == Long.MAX_VALUE) {
+            return Double.NaN;
+        }
+        return value;
+    }
+}
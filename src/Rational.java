@@ -0,0 +1,368 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+// An exact fraction of two integers.
+// The numerator and denominator are held in longs, and are promoted to BigIntegers only when an operation would overflow, so most decimal calculations never allocate more than the result.
+// Fractions with longs are reduced only when an operation would otherwise overflow, while fractions with BigIntegers are always reduced and are demoted to longs once they fit again.
+// Instances are immutable.
+public final class Rational extends Number implements Comparable<Rational> {
+    private static final long serialVersionUID = 1L;
+
+    public static final Rational ZERO = new Rational(0, 1);
+    public static final Rational ONE = new Rational(1, 1);
+    // Largest number of bits in the numerator or denominator of a power, beyond which powers are not computed exactly.
+    public static final int MAX_POWER_BITS = 1 << 16;
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    // Largest magnitude below which every integer is represented exactly as a double.
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+    // Power of two of the smallest subnormal double, 2^-1074, negated.
+    private static final int MIN_EXPONENT_SHIFT = 1074;
+
+    // The value as longs, used if bigNumerator is null. The denominator is positive and never Long.MIN_VALUE.
+    private final long numerator;
+    private final long denominator;
+    // The value as BigIntegers, if it does not fit in longs. The denominator is positive.
+    private final BigInteger bigNumerator;
+    private final BigInteger bigDenominator;
+
+    private Rational(long numerator, long denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        bigNumerator = null;
+        bigDenominator = null;
+    }
+
+    private Rational(BigInteger numerator, BigInteger denominator) {
+        this.numerator = 0;
+        this.denominator = 1;
+        bigNumerator = numerator;
+        bigDenominator = denominator;
+    }
+
+    // Create a fraction, which need not be reduced.
+    public static Rational of(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new ArithmeticException("Zero denominator");
+        }
+        if (denominator < 0) {
+            if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE) {
+                return of(BigInteger.valueOf(numerator).negate(), BigInteger.valueOf(denominator).negate());
+            }
+            return new Rational(-numerator, -denominator);
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    // Create a fraction from BigIntegers, reducing it and holding it in longs if it fits.
+    public static Rational of(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0) {
+            throw new ArithmeticException("Zero denominator");
+        }
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger divisor = numerator.gcd(denominator);
+        if (!divisor.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(divisor);
+            denominator = denominator.divide(divisor);
+        }
+        if (numerator.bitLength() < Long.SIZE && denominator.bitLength() < Long.SIZE) {
+            return new Rational(numerator.longValue(), denominator.longValue());
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    public static Rational valueOf(long value) {
+        return new Rational(value, 1);
+    }
+
+    // Get the exact value of a finite double.
+    public static Rational valueOf(double value) {
+        if (!Double.isFinite(value)) {
+            throw new NumberFormatException("Not a finite number: " + value);
+        }
+        return valueOf(new BigDecimal(value));
+    }
+
+    // Get the exact value of a decimal.
+    public static Rational valueOf(BigDecimal value) {
+        if (value.scale() <= 0) {
+            return of(value.toBigIntegerExact(), BigInteger.ONE);
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE && value.scale() < DecimalFormatter.LONG_POWERS_OF_TEN.length) {
+            return of(unscaled.longValue(), DecimalFormatter.LONG_POWERS_OF_TEN[value.scale()]);
+        }
+        return of(unscaled, BigInteger.TEN.pow(value.scale()));
+    }
+
+    // Calculate the result of an operator, as in CalculatorEngine.evaluate, or return null if the result is not a rational number that can be computed exactly.
+    public static Rational evaluate(String operator, Rational operandFirst, Rational operandSecond) {
+        switch (operator) {
+            case CalculatorEngine.PLUS_SYMBOL:
+                return operandFirst.add(operandSecond);
+            case CalculatorEngine.MINUS_SYMBOL:
+                return operandFirst.subtract(operandSecond);
+            case CalculatorEngine.MULTIPLY_SYMBOL:
+                return operandFirst.multiply(operandSecond);
+            case CalculatorEngine.DIVIDE_SYMBOL:
+                return operandSecond.signum() == 0 ? null : operandFirst.divide(operandSecond);
+            case CalculatorEngine.POWER_SYMBOL:
+                return operandFirst.pow(operandSecond);
+            default:
+                return null;
+        }
+    }
+
+    public Rational add(Rational other) {
+        if (bigNumerator == null && other.bigNumerator == null) {
+            long a = numerator, b = denominator, c = other.numerator, d = other.denominator;
+            if (b == d) {
+                long sum = a + c;
+                if (((a ^ sum) & (c ^ sum)) >= 0) {
+                    return new Rational(sum, b);
+                }
+            } else {
+                // Use the least common multiple of the denominators, which keeps sums of decimals over powers of ten.
+                long divisor = gcd(b, d);
+                long bReduced = b / divisor, dReduced = d / divisor;
+                if (!multiplyOverflows(bReduced, d) && !multiplyOverflows(a, dReduced) && !multiplyOverflows(c, bReduced)) {
+                    long x = a * dReduced, y = c * bReduced, sum = x + y;
+                    if (((x ^ sum) & (y ^ sum)) >= 0) {
+                        return new Rational(sum, bReduced * d);
+                    }
+                }
+            }
+        }
+        return of(bigNumerator().multiply(other.bigDenominator()).add(other.bigNumerator().multiply(bigDenominator())), bigDenominator().multiply(other.bigDenominator()));
+    }
+
+    public Rational subtract(Rational other) {
+        return add(other.negate());
+    }
+
+    public Rational multiply(Rational other) {
+        if (bigNumerator == null && other.bigNumerator == null) {
+            long a = numerator, b = denominator, c = other.numerator, d = other.denominator;
+            if (!multiplyOverflows(a, c) && !multiplyOverflows(b, d)) {
+                return new Rational(a * c, b * d);
+            }
+            // Cancel common factors across the fractions before multiplying, unless a numerator has no magnitude as a long.
+            if (a == Long.MIN_VALUE || c == Long.MIN_VALUE) {
+                return of(bigNumerator().multiply(other.bigNumerator()), bigDenominator().multiply(other.bigDenominator()));
+            }
+            long divisorFirst = gcd(Math.abs(a), d), divisorSecond = gcd(Math.abs(c), b);
+            if (divisorFirst > 1 || divisorSecond > 1) {
+                a /= divisorFirst;
+                d /= divisorFirst;
+                c /= divisorSecond;
+                b /= divisorSecond;
+                if (!multiplyOverflows(a, c) && !multiplyOverflows(b, d)) {
+                    return new Rational(a * c, b * d);
+                }
+            }
+        }
+        return of(bigNumerator().multiply(other.bigNumerator()), bigDenominator().multiply(other.bigDenominator()));
+    }
+
+    public Rational divide(Rational other) {
+        return multiply(other.reciprocal());
+    }
+
+    public Rational negate() {
+        if (bigNumerator == null && numerator != Long.MIN_VALUE) {
+            return new Rational(-numerator, denominator);
+        }
+        return of(bigNumerator().negate(), bigDenominator());
+    }
+
+    public Rational reciprocal() {
+        if (signum() == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (bigNumerator == null) {
+            return of(denominator, numerator);
+        }
+        return of(bigDenominator, bigNumerator);
+    }
+
+    // Raise to a power, or return null if the exponent is not an integer or the result would be too large to compute exactly.
+    public Rational pow(Rational exponent) {
+        Rational reduced = exponent.reduce();
+        if (reduced.bigNumerator != null || reduced.denominator != 1) {
+            return null;
+        }
+        long power = reduced.numerator;
+        if (power < 0) {
+            if (signum() == 0) {
+                return null;
+            }
+            return reciprocal().pow(reduced.negate());
+        }
+        Rational base = reduce();
+        // Estimate the size of the result before computing it.
+        long bits = Math.max(base.bigNumerator().bitLength(), base.bigDenominator().bitLength());
+        if (bits > 1 && power > MAX_POWER_BITS / (bits - 1)) {
+            return null;
+        }
+        if (bits <= 1 && power > Integer.MAX_VALUE) {
+            // Powers of -1, 0, and 1 depend only on the parity of the exponent.
+            power = 2 + (power & 1);
+        }
+        return of(base.bigNumerator().pow((int)power), base.bigDenominator().pow((int)power));
+    }
+
+    // Get the same value with the numerator and denominator having no common factor.
+    public Rational reduce() {
+        if (bigNumerator != null) {
+            return this;
+        }
+        long divisor = gcd(Math.abs(numerator), denominator);
+        if (divisor == 1 || numerator == Long.MIN_VALUE) {
+            return divisor == 1 ? this : of(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+        }
+        return new Rational(numerator / divisor, denominator / divisor);
+    }
+
+    public int signum() {
+        return bigNumerator == null ? Long.signum(numerator) : bigNumerator.signum();
+    }
+
+    public BigInteger getNumerator() {
+        return reduce().bigNumerator();
+    }
+
+    public BigInteger getDenominator() {
+        return reduce().bigDenominator();
+    }
+
+    // Get the nearest double, rounding to nearest even.
+    @Override
+    public double doubleValue() {
+        if (bigNumerator == null && Math.abs(numerator) <= MAX_EXACT_INTEGER && denominator <= MAX_EXACT_INTEGER) {
+            // Both are exact, so a single division rounds correctly.
+            return (double)numerator / denominator;
+        }
+        BigInteger n = bigNumerator().abs(), d = bigDenominator();
+        if (n.signum() == 0) {
+            return 0.0;
+        }
+        // Divide to get a quotient of at least 55 bits, and set its lowest bit if there is a remainder, so that converting it rounds as the exact value would.
+        int shift = 55 - (n.bitLength() - d.bitLength());
+        // Values below 2^-1021 have bits only down to 2^-1074, so they are divided down to two bits below that, and those are rounded off here instead,
+        // since converting the quotient and then scaling it into the subnormal range would round twice.
+        boolean subnormal = shift > MIN_EXPONENT_SHIFT + 2;
+        if (subnormal) {
+            shift = MIN_EXPONENT_SHIFT + 2;
+        }
+        BigInteger[] division = shift > 0 ? n.shiftLeft(shift).divideAndRemainder(d) : n.divideAndRemainder(d.shiftLeft(-shift));
+        long quotient = division[0].longValue();
+        if (division[1].signum() != 0) {
+            quotient |= 1;
+        }
+        double value;
+        if (subnormal) {
+            // Round to nearest even, the lowest bit holding whether anything follows the bit above it.
+            long rounded = quotient >> 2;
+            long rest = quotient & 3;
+            if (rest == 3 || (rest == 2 && (rounded & 1) != 0)) {
+                rounded++;
+            }
+            value = Math.scalb((double)rounded, -MIN_EXPONENT_SHIFT);
+        } else {
+            value = Math.scalb((double)quotient, -shift);
+        }
+        return bigNumerator().signum() < 0 ? -value : value;
+    }
+
+    @Override
+    public float floatValue() {
+        return (float)doubleValue();
+    }
+
+    // Get the integer part, truncated toward zero, as a long.
+    @Override
+    public long longValue() {
+        if (bigNumerator == null) {
+            return numerator / denominator;
+        }
+        return bigNumerator.divide(bigDenominator).longValue();
+    }
+
+    @Override
+    public int intValue() {
+        return (int)longValue();
+    }
+
+    // Get the value as a decimal, which must have a finite expansion unless a rounding context is given.
+    public BigDecimal toBigDecimal(MathContext context) {
+        return new BigDecimal(bigNumerator()).divide(new BigDecimal(bigDenominator()), context);
+    }
+
+    @Override
+    public int compareTo(Rational other) {
+        if (bigNumerator == null && other.bigNumerator == null && !multiplyOverflows(numerator, other.denominator) && !multiplyOverflows(other.numerator, denominator)) {
+            return Long.compare(numerator * other.denominator, other.numerator * denominator);
+        }
+        return bigNumerator().multiply(other.bigDenominator()).compareTo(other.bigNumerator().multiply(bigDenominator()));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Rational && compareTo((Rational)other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        Rational reduced = reduce();
+        return reduced.bigNumerator().hashCode() * 31 + reduced.bigDenominator().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        Rational reduced = reduce();
+        if (reduced.bigDenominator().equals(BigInteger.ONE)) {
+            return reduced.bigNumerator().toString();
+        }
+        return reduced.bigNumerator() + "/" + reduced.bigDenominator();
+    }
+
+    private BigInteger bigNumerator() {
+        return bigNumerator != null ? bigNumerator : BigInteger.valueOf(numerator);
+    }
+
+    private BigInteger bigDenominator() {
+        return bigDenominator != null ? bigDenominator : BigInteger.valueOf(denominator);
+    }
+
+    // Check whether the product of two longs overflows.
+    private static boolean multiplyOverflows(long a, long b) {
+        return Math.multiplyHigh(a, b) != (a * b) >> 63;
+    }
+
+    // Greatest common divisor of two non-negative longs, not both zero, by the binary algorithm.
+    static long gcd(long a, long b) {
+        if (a == 0) {
+            return b;
+        }
+        if (b == 0) {
+            return a;
+        }
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>>= Long.numberOfTrailingZeros(a);
+        while (b != 0) {
+            b >>>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                long t = b;
+                b = a;
+                a = t;
+            }
+            b -= a;
+        }
+        return a << shift;
+    }
+}
@@ -0,0 +1,221 @@
+// Computes the result of repeating a calculation on its own result many times, exactly as the same number of repeated solves would.
+// Each solve rounds and normalizes its result before using it as the next operand, so repetitions cannot in general be replaced by a single power or product.
+// Instead, the values are iterated without formatting, and repetitions are skipped once the values are found to cycle, using Brent's algorithm.
+// Most calculations reach a cycle quickly, because their results eventually overflow, vanish, or stop changing.
+// Multiplication and division, which are not rounded, are iterated in a loop of their own without the dispatch and rounding of CalculatorEngine.evaluate.
+// Addition and subtraction of decimals, which only cycle after leaving the range in which they are exact, skip ahead in one step instead, for as long as the rounding does not change their sums.
+// An instance is not thread-safe.
+public class RepeatedCalculation {
+    // Maximum number of decimal places of operands whose repeated addition and subtraction is computed directly.
+    static final int MAX_SCALE_DIGITS = 7;
+    // Bound on the magnitude of operands whose repeated addition and subtraction is computed directly.
+    // Below this, CalculatorEngine.evaluate rounds sums to one more decimal place than their first operand has, which is exact for up to MAX_SCALE_DIGITS + 1 places,
+    // because the errors of the operands, of their sum, and of its scaling then add up to less than half of the last place.
+    static final double MAX_SCALED_MAGNITUDE = 1e7;
+    // Magnitude below which nonzero operands have a number of decimal places determined by their scientific notation, which is not computed directly.
+    private static final double MIN_SCALED_MAGNITUDE = 1e-3;
+
+    // Used as a scratch buffer when eliminating roundoff error.
+    private final DecimalFormatter formatter;
+
+    // The first operand and the result of the last repetition.
+    private double operandLast;
+    private double result;
+    // Operand reached by the last call to advance().
+    private double advanced;
+
+    public RepeatedCalculation(DecimalFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    // Perform a calculation the specified number of times, using the value of each result as the first operand of the next.
+    public void evaluate(String operator, double operandFirst, double operandSecond, long count) {
+        if (operator.equals(CalculatorEngine.MULTIPLY_SYMBOL) || operator.equals(CalculatorEngine.DIVIDE_SYMBOL)) {
+            evaluateProduct(operator.equals(CalculatorEngine.DIVIDE_SYMBOL), operandFirst, operandSecond, count);
+            return;
+        }
+        double operand = operandFirst;
+        // An earlier operand compared with each new one, and the number of repetitions since it and until it is next replaced.
+        double operandSaved = operand;
+        long cycleLength = 0;
+        long cycleLimit = 1;
+        operandLast = operandFirst;
+        result = operandFirst;
+        long remaining = count;
+        while (remaining > 0) {
+            // Skip ahead, leaving the last repetition to be calculated normally.
+            if (remaining > 1) {
+                long steps = advance(operator, operand, operandSecond, remaining - 1);
+                if (steps > 0) {
+                    operand = advanced;
+                    operandSaved = operand;
+                    cycleLength = 0;
+                    cycleLimit = 1;
+                    remaining -= steps;
+                    continue;
+                }
+            }
+            operandLast = operand;
+            result = CalculatorEngine.evaluate(operator, operand, operandSecond, formatter);
+            operand = DecimalFormatter.resultValue(result);
+            remaining--;
+            cycleLength++;
+            // The values repeat with this period, so whole periods can be skipped.
+            if (same(operand, operandSaved)) {
+                remaining %= cycleLength;
+            }
+            else if (cycleLength == cycleLimit) {
+                operandSaved = operand;
+                cycleLength = 0;
+                cycleLimit *= 2;
+            }
+        }
+    }
+
+    // Get the first operand of the last repetition.
+    public double getOperandLast() {
+        return operandLast;
+    }
+
+    // Get the result of the last repetition, before formatting.
+    public double getResult() {
+        return result;
+    }
+
+    // Repeat a multiplication or division, whose results are used as the next operand after normalizing them as DecimalFormatter.resultValue() does.
+    // Results that overflow or vanish become zero, which then repeats, so such calculations end in a cycle found as in evaluate().
+    private void evaluateProduct(boolean divide, double operandFirst, double operandSecond, long count) {
+        double operand = operandFirst;
+        double operandSaved = operand;
+        long cycleLength = 0;
+        long cycleLimit = 1;
+        long remaining = count;
+        while (remaining > 1) {
+            operand = DecimalFormatter.resultValue(divide ? operand / operandSecond : operand * operandSecond);
+            remaining--;
+            cycleLength++;
+            // Skip whole periods, keeping the last repetition to give the result.
+            if (same(operand, operandSaved)) {
+                remaining = (remaining - 1) % cycleLength + 1;
+                cycleLength = 0;
+                cycleLimit = Long.MAX_VALUE;
+            }
+            else if (cycleLength == cycleLimit) {
+                operandSaved = operand;
+                cycleLength = 0;
+                cycleLimit *= 2;
+            }
+        }
+        operandLast = operand;
+        result = count > 0 ? (divide ? operand / operandSecond : operand * operandSecond) : operandFirst;
+    }
+
+    // Compute the operand after up to the specified number of repetitions directly, and return the number of repetitions done, or 0 if none can be.
+    // Both operands are decimals of at most MAX_SCALE_DIGITS places, which are exact integers once scaled by the larger of their numbers of places.
+    // A sum has as many places as the operand with more of them, or at most that many if both have as many, and is exact if it is rounded to at least that many.
+    // Sums are rounded to one more place than the first operand has, so the first inexact sum is the first from an operand with at least two places fewer than the step.
+    private long advance(String operator, double operand, double operandSecond, long maxSteps) {
+        double step;
+        if (operator.equals(CalculatorEngine.PLUS_SYMBOL)) {
+            step = operandSecond;
+        } else if (operator.equals(CalculatorEngine.MINUS_SYMBOL)) {
+            step = -operandSecond;
+        } else {
+            return 0;
+        }
+        // Neither the operand nor, from zero, the first sum may have a magnitude that is not computed directly.
+        if (!(Math.abs(operand) < MAX_SCALED_MAGNITUDE && Math.abs(step) < MAX_SCALED_MAGNITUDE) || step == 0.0
+                || Math.abs(operand == 0.0 ? step : operand) < MIN_SCALED_MAGNITUDE) {
+            return 0;
+        }
+        int stepPlaces = decimalPlaces(step);
+        int scaleDigits = Math.max(decimalPlaces(operand), stepPlaces);
+        if (scaleDigits > MAX_SCALE_DIGITS) {
+            return 0;
+        }
+        double scale = DecimalFormatter.POWERS_OF_TEN[scaleDigits];
+        long scaledOperand = Math.round(operand * scale);
+        long scaledStep = Math.round(step * scale);
+        // The operands form an arithmetic progression, so all of them are within the bounds if the last one is.
+        long maxScaled = (long)(MAX_SCALED_MAGNITUDE * scale) - 1;
+        long minScaled = (long)(MIN_SCALED_MAGNITUDE * scale);
+        long steps;
+        if (scaledStep > 0) {
+            // Operands that approach zero from below stop before reaching the magnitudes that are not computed directly.
+            steps = scaledOperand < 0 ? (-minScaled - scaledOperand) / scaledStep : (maxScaled - scaledOperand) / scaledStep;
+        } else {
+            steps = scaledOperand > 0 ? (scaledOperand - minScaled) / -scaledStep : (scaledOperand + maxScaled) / -scaledStep;
+        }
+        // Operands with at least two places fewer than the step, which has more than two, are those whose scaled values are multiples of this.
+        // Rounding the sums of integers keeps two places, so steps of at most two places are always exact.
+        if (stepPlaces > 2) {
+            long inexact = firstMultiple(scaledOperand, scaledStep, (long)DecimalFormatter.POWERS_OF_TEN[scaleDigits - stepPlaces + 2]);
+            if (inexact >= 0) {
+                steps = Math.min(steps, inexact);
+            }
+        }
+        steps = Math.min(steps, maxSteps);
+        if (steps <= 0) {
+            return 0;
+        }
+        // Each result is the double nearest its exact decimal value, as division of the scaled value gives.
+        advanced = (scaledOperand + steps * scaledStep) / scale;
+        return steps;
+    }
+
+    // Get the number of decimal places of the shortest decimal of at most MAX_SCALE_DIGITS places that converts to a value of magnitude below MAX_SCALED_MAGNITUDE,
+    // or more than MAX_SCALE_DIGITS if there is none, as CalculatorEngine.evaluate finds them.
+    private static int decimalPlaces(double v) {
+        for (int digits = 0; digits <= MAX_SCALE_DIGITS; digits++) {
+            double scale = DecimalFormatter.POWERS_OF_TEN[digits];
+            if (Math.round(v * scale) / scale == v) {
+                return digits;
+            }
+        }
+        return MAX_SCALE_DIGITS + 1;
+    }
+
+    // Get the least number of steps from a value to a multiple of the modulus, or -1 if it never reaches one, by solving step * n = -start modulo the modulus.
+    private static long firstMultiple(long start, long step, long modulus) {
+        long target = Math.floorMod(-start, modulus);
+        long increment = Math.floorMod(step, modulus);
+        long divisor = gcd(increment, modulus);
+        if (target % divisor != 0) {
+            return -1;
+        }
+        long period = modulus / divisor;
+        return target / divisor * inverse(increment / divisor, period) % period;
+    }
+
+    // Get the inverse of a value modulo a modulus that it is coprime with, by the extended Euclidean algorithm.
+    private static long inverse(long value, long modulus) {
+        long coefficient = 0;
+        long coefficientNext = 1;
+        long remainder = modulus;
+        long remainderNext = value;
+        while (remainderNext != 0) {
+            long quotient = remainder / remainderNext;
+            long t = coefficient - quotient * coefficientNext;
+            coefficient = coefficientNext;
+            coefficientNext = t;
+            t = remainder - quotient * remainderNext;
+            remainder = remainderNext;
+            remainderNext = t;
+        }
+        return Math.floorMod(coefficient, modulus);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // Check whether two values are identical, treating all NaN values as identical.
+    private static boolean same(double a, double b) {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+}
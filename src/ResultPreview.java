@@ -0,0 +1,77 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+
+// Shows what solving would display, calculated on a background thread as operands are entered, so that expensive calculations such as large powers at a high precision do not stall the window.
+// Each request cancels the calculation in progress, and a result is shown only if no newer request was made before it arrived.
+// In precision mode, the engine reuses the calculation of a result, so that solving after the preview is shown takes no time.
+// Calculations run on virtual threads if the runtime has them, and otherwise on daemon threads.
+// Requests are made only on the JavaFX application thread.
+public class ResultPreview {
+    // Name of the threads that calculate previews, if they are not virtual.
+    static final String THREAD_NAME = "Calculator Preview";
+
+    private final Label label;
+    private final CalculatorEngine engine;
+    private final ExecutorService executor;
+
+    // Number of the most recent request, compared with the number of each result when it arrives.
+    private long generation;
+    // The calculation of the most recent request, which may be in progress.
+    private Future<?> pending;
+
+    public ResultPreview(Label label, CalculatorEngine engine) {
+        this.label = label;
+        this.engine = engine;
+        executor = VirtualThreads.newExecutor(THREAD_NAME);
+    }
+
+    // Calculate what solving would display with the current operands, replacing any calculation in progress.
+    public void request() {
+        cancel();
+        long requested = generation;
+        CalculatorEngine snapshot = engine.snapshot();
+        if (snapshot == null) {
+            label.setText("");
+            return;
+        }
+        pending = executor.submit(() -> {
+            String text;
+            try {
+                snapshot.solve();
+                text = snapshot.getDisplayText();
+            }
+            catch (CancellationException e) {
+                return;
+            }
+            Platform.runLater(() -> {
+                engine.reusePreciseCalculation(snapshot);
+                if (requested == generation) {
+                    label.setText(text);
+                }
+            });
+        });
+    }
+
+    // Whether the most recent request calculates a result that is shown or will be, which is not the case once cancelled.
+    public boolean isRequested() {
+        return pending != null;
+    }
+
+    // Cancel the calculation in progress, if any, so that no result is shown until the next request.
+    public void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    // Cancel any calculation in progress and stop accepting requests.
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,71 @@
+import java.time.Duration;
+import java.time.Instant;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+// Measures the time from the launch of the process to the end of layout of the first pulse, just before the first frame is drawn,
+// and to the end of layout of the first pulse after the calculator accepts input, and prints both once known.
+// Used only on the JavaFX application thread.
+public class StartupTimer {
+    // Value of the property that also exits after printing, such as when training a class data sharing archive.
+    public static final String EXIT_VALUE = "exit";
+
+    private final Instant launch;
+    private final boolean exit;
+    private Scene scene;
+    private final Runnable listener = this::measure;
+
+    // Whether the calculator accepts input.
+    private boolean ready;
+    // Times from launch, or null if not reached.
+    private Duration timeFirstFrame;
+    private Duration timeFirstInput;
+
+    private StartupTimer(boolean exit) {
+        // Measure from the start of the process if known, which includes starting the JVM, or from now otherwise.
+        launch = ProcessHandle.current().info().startInstant().orElseGet(Instant::now);
+        this.exit = exit;
+    }
+
+    // Create a timer if the specified system property is "true" or "exit", or return null otherwise.
+    public static StartupTimer fromProperty(String property) {
+        String value = System.getProperty(property);
+        if (Boolean.parseBoolean(value) || EXIT_VALUE.equals(value)) {
+            return new StartupTimer(EXIT_VALUE.equals(value));
+        }
+        return null;
+    }
+
+    // Measure the pulses of the scene of the window.
+    public void attach(Scene scene) {
+        this.scene = scene;
+        scene.addPostLayoutPulseListener(listener);
+    }
+
+    // Record that the calculator accepts input, which is measured at the next pulse.
+    public void markReady() {
+        ready = true;
+        Platform.requestNextPulse();
+    }
+
+    private void measure() {
+        Duration time = Duration.between(launch, Instant.now());
+        if (timeFirstFrame == null) {
+            timeFirstFrame = time;
+        }
+        if (ready && timeFirstInput == null) {
+            timeFirstInput = time;
+            scene.removePostLayoutPulseListener(listener);
+            System.out.println(this);
+            if (exit) {
+                Platform.exit();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Startup: first frame %d ms, first input %d ms", timeFirstFrame.toMillis(), timeFirstInput.toMillis());
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A binary file of completed calculations and the state of the session, written through a memory-mapped buffer.
+// Writing a calculation copies a fixed-size record into memory with no system call, so it adds no noticeable time to a calculation, and the operating system writes it to disk even if the program exits abnormally.
+// The file has a fixed size: a header, two slots for the session written alternately so that one is always complete, and a fixed number of records.
+// When all records are used, the older half is discarded by moving the newer half to the beginning.
+// A flag in the header is set for the duration of the move, so that a move interrupted by a crash is made again when the file is next opened.
+// The file is locked while open, so that only one instance of the calculator writes to it.
+// Not thread-safe.
+public class TapeJournal implements Closeable {
+    // Identifies the format of the file.
+    static final int MAGIC = 0x43544150;
+    static final int VERSION = 2;
+    // Number of calculations held in the file, and the number kept when the file is compacted.
+    public static final int MAX_RECORDS = 1 << 16;
+    public static final int COMPACTED_RECORDS = MAX_RECORDS / 2;
+
+    // Layout of the header.
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int ACTIVE_SESSION_OFFSET = 16;
+    private static final int COMPACTING_OFFSET = 20;
+    private static final int HEADER_SIZE = 64;
+    // Layout of a session slot, which begins with a flag that is 1 if the slot contains a session.
+    static final int SESSION_SIZE = 4096;
+    private static final int SESSION_OFFSET = HEADER_SIZE;
+    // Layout of a record.
+    static final int RECORD_SIZE = 48;
+    private static final int RECORD_TIME_OFFSET = 0;
+    private static final int RECORD_KIND_OFFSET = 8;
+    private static final int RECORD_OPERATOR_OFFSET = 10;
+    private static final int RECORD_FIRST_OFFSET = 16;
+    private static final int RECORD_SECOND_OFFSET = 24;
+    private static final int RECORD_RESULT_OFFSET = 32;
+    private static final int RECORD_REPETITIONS_OFFSET = 40;
+    private static final int RECORDS_OFFSET = SESSION_OFFSET + 2 * SESSION_SIZE;
+    static final int FILE_SIZE = RECORDS_OFFSET + MAX_RECORDS * RECORD_SIZE;
+
+    // The channel holding the lock on the file, which is released when it is closed.
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // Views of the two session slots.
+    private final ByteBuffer[] sessions = new ByteBuffer[2];
+    // Number of records written, which is also stored in the header once each record is complete.
+    private long count;
+
+    private TapeJournal(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        sessions[0] = sessionSlot(buffer, 0);
+        sessions[1] = sessionSlot(buffer, 1);
+        count = buffer.getLong(COUNT_OFFSET);
+        // Finish a compaction interrupted before it completed, which is possible because the records being moved are not overwritten by the move.
+        if (buffer.getInt(COMPACTING_OFFSET) != 0) {
+            compact();
+        }
+    }
+
+    // Open the journal at the specified path, creating it if it does not exist or does not have the expected format.
+    // Throws an IOException if another process or another journal in this process has the file open.
+    public static TapeJournal open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            }
+            catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("Journal is in use by another instance: " + path);
+            }
+            boolean existing = channel.size() == FILE_SIZE;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            if (!existing || !isValid(buffer)) {
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putLong(COUNT_OFFSET, 0);
+                buffer.putInt(ACTIVE_SESSION_OFFSET, 0);
+                buffer.putInt(sessionOffset(0), 0);
+                buffer.putInt(sessionOffset(1), 0);
+                buffer.putInt(COMPACTING_OFFSET, 0);
+            }
+            return new TapeJournal(channel, buffer);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Check that a file has the expected format and that its header is consistent.
+    private static boolean isValid(ByteBuffer buffer) {
+        long count = buffer.getLong(COUNT_OFFSET);
+        int activeSession = buffer.getInt(ACTIVE_SESSION_OFFSET);
+        return buffer.getInt(MAGIC_OFFSET) == MAGIC && buffer.getInt(VERSION_OFFSET) == VERSION
+            && count >= 0 && count <= MAX_RECORDS && (activeSession == 0 || activeSession == 1)
+            && (buffer.getInt(COMPACTING_OFFSET) == 0 || count == MAX_RECORDS || count == COMPACTED_RECORDS);
+    }
+
+    // Number of calculations held in the file.
+    public long size() {
+        return count;
+    }
+
+    // Add a calculation solved the specified number of times.
+    public void append(long time, byte kind, char operator, double operandFirst, double operandSecond, double result, long repetitionCount) {
+        if (count == MAX_RECORDS) {
+            compact();
+        }
+        int offset = recordOffset(count);
+        buffer.putLong(offset + RECORD_TIME_OFFSET, time);
+        buffer.put(offset + RECORD_KIND_OFFSET, kind);
+        buffer.putChar(offset + RECORD_OPERATOR_OFFSET, operator);
+        buffer.putDouble(offset + RECORD_FIRST_OFFSET, operandFirst);
+        buffer.putDouble(offset + RECORD_SECOND_OFFSET, operandSecond);
+        buffer.putDouble(offset + RECORD_RESULT_OFFSET, result);
+        buffer.putLong(offset + RECORD_REPETITIONS_OFFSET, repetitionCount);
+        // Include the record only once it is complete.
+        buffer.putLong(COUNT_OFFSET, ++count);
+    }
+
+    // Fill a tape with the most recent calculations in the file, as many as it holds.
+    public void readTape(CalculationTape tape) {
+        long start = Math.max(0, count - tape.capacity());
+        for (long i = start; i < count; i++) {
+            int offset = recordOffset(i);
+            tape.record(
+                buffer.getLong(offset + RECORD_TIME_OFFSET),
+                buffer.get(offset + RECORD_KIND_OFFSET),
+                buffer.getChar(offset + RECORD_OPERATOR_OFFSET),
+                buffer.getDouble(offset + RECORD_FIRST_OFFSET),
+                buffer.getDouble(offset + RECORD_SECOND_OFFSET),
+                buffer.getDouble(offset + RECORD_RESULT_OFFSET),
+                buffer.getLong(offset + RECORD_REPETITIONS_OFFSET)
+            );
+        }
+    }
+
+    // Save the state of a session into the slot not currently in use, then make it the slot in use.
+    // A session whose operands are too long to fit is saved as no session.
+    public void writeSession(CalculatorEngine engine) {
+        int slot = 1 - buffer.getInt(ACTIVE_SESSION_OFFSET);
+        ByteBuffer session = sessions[slot];
+        session.putInt(0, 0);
+        session.position(4);
+        if (engine.writeSession(session)) {
+            session.putInt(0, 1);
+        }
+        buffer.putInt(ACTIVE_SESSION_OFFSET, slot);
+    }
+
+    // Restore the state of a session from the slot in use, and return whether there was a valid session to restore.
+    public boolean readSession(CalculatorEngine engine) {
+        ByteBuffer session = sessions[buffer.getInt(ACTIVE_SESSION_OFFSET)];
+        if (session.getInt(0) != 1) {
+            return false;
+        }
+        session.position(4);
+        try {
+            engine.readSession(session);
+        }
+        catch (IllegalArgumentException | BufferUnderflowException e) {
+            return false;
+        }
+        return true;
+    }
+
+    // Write any changes to disk and release the file.
+    @Override
+    public void close() {
+        buffer.force();
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            System.err.println("Could not close journal: " + e.getMessage());
+        }
+    }
+
+    // Discard all but the most recent records, which is done only once all records are used.
+    // Each step is written to disk before the next, so that the file is consistent after a crash at any point: the flag is set before any record is moved,
+    // and cleared only after the count is reduced. Making the move again is harmless, since the newer half is unchanged until the flag is cleared.
+    private void compact() {
+        buffer.putInt(COMPACTING_OFFSET, 1);
+        buffer.force();
+        // The records moved do not overlap the records they replace, because at most half are kept.
+        ByteBuffer source = buffer.duplicate();
+        source.limit(recordOffset(MAX_RECORDS)).position(recordOffset(MAX_RECORDS - COMPACTED_RECORDS));
+        ByteBuffer target = buffer.duplicate();
+        target.position(recordOffset(0));
+        target.put(source);
+        count = COMPACTED_RECORDS;
+        buffer.putLong(COUNT_OFFSET, count);
+        buffer.force();
+        buffer.putInt(COMPACTING_OFFSET, 0);
+    }
+
+    // Get a view of a session slot, with position 0 at the start of the slot.
+    private static ByteBuffer sessionSlot(ByteBuffer buffer, int slot) {
+        ByteBuffer session = buffer.duplicate();
+        session.limit(sessionOffset(slot) + SESSION_SIZE).position(sessionOffset(slot));
+        return session.slice();
+    }
+
+    private static int sessionOffset(int slot) {
+        return SESSION_OFFSET + slot * SESSION_SIZE;
+    }
+
+    private static int recordOffset(long index) {
+        return RECORDS_OFFSET + (int)index * RECORD_SIZE;
+    }
+}
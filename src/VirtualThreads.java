@@ -0,0 +1,22 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Creates executors that run each task on a new virtual thread if the runtime has them, and otherwise on reusable daemon threads.
+// The program is built for Java 11, so virtual threads are found by reflection.
+public final class VirtualThreads {
+    private VirtualThreads() {}
+
+    // Create an executor for tasks that mostly wait, naming its threads with the specified name if they are not virtual.
+    public static ExecutorService newExecutor(String name) {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
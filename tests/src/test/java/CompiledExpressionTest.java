@@ -0,0 +1,58 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+    private static double evaluate(String expression, double... values) {
+        return CompiledExpression.compile(expression).evaluate(values);
+    }
+
+    @Test
+    void followsPrecedence() {
+        assertEquals(11.0, evaluate("3+4*2"));
+        assertEquals(14.0, evaluate("(3+4)*2"));
+        assertEquals(-5.0, evaluate("2-3-4"));
+        assertEquals(1.0, evaluate("8/4/2"));
+        assertEquals(512.0, evaluate("2^3^2"));
+        assertEquals(-4.0, evaluate("-2^2"));
+        assertEquals(0.25, evaluate("2^-2"));
+        assertEquals(3.5, evaluate("3+4*2^(1-x)", 4));
+    }
+
+    @Test
+    void roundsSumsAsTheEngineDoes() {
+        assertEquals(0.3, evaluate("0.1+0.2"));
+        assertEquals(0.3, evaluate("x+y", 0.1, 0.2));
+        assertEquals(0.1, evaluate("0.3-0.2"));
+        DecimalFormatter formatter = new DecimalFormatter();
+        assertEquals(CalculatorEngine.evaluate(CalculatorEngine.PLUS_SYMBOL, 1.1, 2.2, formatter), evaluate("x+y", 1.1, 2.2));
+    }
+
+    @Test
+    void foldsConstants() {
+        // A folded expression pushes a single constant, so it needs only one place on the stack.
+        double[] stack = new double[1];
+        DecimalFormatter formatter = new DecimalFormatter();
+        assertEquals(8.0, CompiledExpression.compile("2*3+4^0.5").evaluate(new double[0], stack, formatter));
+        // Folded sums are rounded like any other.
+        assertEquals(0.3, CompiledExpression.compile("(0.1+0.2)").evaluate(new double[0], stack, formatter));
+        assertEquals(-6.0, CompiledExpression.compile("-(2*3)").evaluate(new double[0], stack, formatter));
+    }
+
+    @Test
+    void ordersVariablesByFirstAppearance() {
+        CompiledExpression expression = CompiledExpression.compile("b-a+b");
+        assertArrayEquals(new String[] {"b", "a"}, expression.getVariables());
+        assertEquals(3.0, expression.evaluate(2, 1));
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("2+"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("(1"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("1)"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("x").evaluate());
+    }
+}
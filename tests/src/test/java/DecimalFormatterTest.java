@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DecimalFormatterTest {
+    private static String format(double v) {
+        DecimalFormatter formatter = new DecimalFormatter();
+        formatter.format(v);
+        return formatter.toString();
+    }
+
+    private static String formatResult(double result) {
+        DecimalFormatter formatter = new DecimalFormatter();
+        formatter.formatResult(result);
+        return formatter.toString();
+    }
+
+    @Test
+    void writesShortestDigits() {
+        assertEquals("0.1", format(0.1));
+        assertEquals("0.30000000000000004", format(0.1 + 0.2));
+        // Double.toString before JDK 19 writes 2.0000000000000003E23.
+        assertEquals("2.0E23", format(2e23));
+        assertEquals("1.0E-5", format(1e-5));
+        assertEquals("4.9E-324", format(Double.MIN_VALUE));
+        assertEquals("1.7976931348623157E308", format(Double.MAX_VALUE));
+        assertEquals("-0.0", format(-0.0));
+        assertEquals("NaN", format(Double.NaN));
+        assertEquals("-Infinity", format(Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void randomValuesConvertBackWithNoShorterDigits() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            double v = Double.longBitsToDouble(random.nextLong());
+            if (!Double.isFinite(v)) {
+                continue;
+            }
+            String text = format(v);
+            assertEquals(v, Double.parseDouble(text), text);
+            // Removing the last significant digit, when there is more than one, must give a different value.
+            String significand = text.contains("E") ? text.substring(0, text.indexOf('E')) : text;
+            String digits = significand.replace("-", "").replace(".", "").replaceAll("^0+", "");
+            if (digits.length() > 2 && !significand.endsWith(".0")) {
+                String shorter = significand.substring(0, significand.length() - 1) + text.substring(significand.length());
+                assertEquals(false, Double.parseDouble(shorter) == v, text);
+            }
+        }
+    }
+
+    @Test
+    void formatsLongs() {
+        DecimalFormatter formatter = new DecimalFormatter();
+        formatter.format(Long.MIN_VALUE);
+        assertEquals(Long.toString(Long.MIN_VALUE), formatter.toString());
+        formatter.format(0L);
+        assertEquals("0", formatter.toString());
+    }
+
+    @Test
+    void formatsResultsAsDisplayed() {
+        assertEquals("3", formatResult(3.0));
+        assertEquals("0.5", formatResult(0.5));
+        assertEquals(CalculatorEngine.OVERFLOW_MESSAGE, formatResult(1e19));
+        assertEquals(CalculatorEngine.UNDERFLOW_MESSAGE, formatResult(-1e19));
+        assertEquals(0.0, DecimalFormatter.resultValue(1e19));
+    }
+
+    @Test
+    void trailingLengthMatchesText() {
+        DecimalFormatter formatter = new DecimalFormatter();
+        Random random = new Random(2);
+        for (int i = 0; i < 100_000; i++) {
+            double v = Math.round(random.nextDouble() * 1e9) / Math.pow(10, random.nextInt(12)) - 500;
+            String text = Double.toString(v);
+            int point = text.indexOf('.');
+            assertEquals(point < 0 ? 0 : text.length() - point, formatter.trailingLength(v), text);
+        }
+    }
+}
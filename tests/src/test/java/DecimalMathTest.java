@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import org.junit.jupiter.api.Test;
+
+class DecimalMathTest {
+    private static final MathContext CONTEXT = DecimalMath.context(50);
+    private static final BigDecimal E = new BigDecimal("2.7182818284590452353602874713526624977572470936999595749669676277");
+    private static final BigDecimal LN_10 = new BigDecimal("2.3025850929940456840179914546843642076011014886287729760333279009");
+
+    @Test
+    void expAndLnAreCorrectlyRounded() {
+        assertEquals(E.round(CONTEXT), DecimalMath.exp(BigDecimal.ONE, CONTEXT));
+        assertEquals(LN_10.round(CONTEXT), DecimalMath.ln(BigDecimal.TEN, CONTEXT));
+        assertEquals(0, BigDecimal.ONE.compareTo(DecimalMath.ln(E, CONTEXT).round(DecimalMath.context(40))));
+    }
+
+    @Test
+    void fractionalPowers() {
+        assertEquals(new BigDecimal(2).sqrt(CONTEXT), DecimalMath.pow(new BigDecimal(2), new BigDecimal("0.5"), CONTEXT));
+        assertEquals(0, new BigDecimal(3).compareTo(DecimalMath.pow(new BigDecimal(27), BigDecimal.ONE.divide(new BigDecimal(3), CONTEXT), DecimalMath.context(40))));
+    }
+
+    @Test
+    void integerPowersAreExactWithinPrecision() {
+        assertEquals(new BigDecimal("1024"), DecimalMath.pow(new BigDecimal(2), BigDecimal.TEN, CONTEXT));
+        assertEquals(new BigDecimal("0.0625"), DecimalMath.pow(new BigDecimal(2), new BigDecimal(-4), CONTEXT));
+        assertEquals(new BigDecimal("-8"), DecimalMath.pow(new BigDecimal(-2), new BigDecimal(3), CONTEXT));
+    }
+
+    @Test
+    void powersWithoutRealResults() {
+        assertNull(DecimalMath.pow(new BigDecimal(-2), new BigDecimal("0.5"), CONTEXT));
+        assertNull(DecimalMath.pow(BigDecimal.ZERO, BigDecimal.ONE.negate(), CONTEXT));
+        assertNull(DecimalMath.evaluate(CalculatorEngine.DIVIDE_SYMBOL, BigDecimal.ONE, BigDecimal.ZERO, CONTEXT));
+        assertEquals(BigDecimal.ONE, DecimalMath.pow(BigDecimal.ZERO, BigDecimal.ZERO, CONTEXT));
+    }
+
+    @Test
+    void powersFarOutOfRange() {
+        BigDecimal huge = DecimalMath.pow(BigDecimal.TEN, new BigDecimal("1e9"), CONTEXT);
+        assertEquals(2 * DecimalMath.MAX_EXPONENT, huge.precision() - huge.scale() - 1);
+        assertEquals(BigDecimal.ZERO, DecimalMath.pow(BigDecimal.TEN, new BigDecimal("-1e9"), CONTEXT));
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> DecimalMath.context(0));
+        assertThrows(ArithmeticException.class, () -> DecimalMath.ln(BigDecimal.ZERO, CONTEXT));
+    }
+}
@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelEvaluatorTest {
+    @Test
+    void tableIncludesEndReachedWithinRoundoff() {
+        assertEquals(4, ParallelEvaluator.tableSize(0, 0.3, 0.1));
+        assertEquals(11, ParallelEvaluator.tableSize(0, 1, 0.1));
+        assertEquals(3, ParallelEvaluator.tableSize(1, 0, -0.5));
+        assertEquals(1, ParallelEvaluator.tableSize(2, 2, 1));
+        assertEquals(3, ParallelEvaluator.tableSize(0, 2.5, 1));
+    }
+
+    @Test
+    void tableRejectsInvalidSteps() {
+        assertThrows(IllegalArgumentException.class, () -> ParallelEvaluator.tableSize(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> ParallelEvaluator.tableSize(0, 1, -1));
+        assertThrows(IllegalArgumentException.class, () -> ParallelEvaluator.tableSize(0, 1, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> ParallelEvaluator.tableSize(0, Double.POSITIVE_INFINITY, 1));
+        assertThrows(IllegalArgumentException.class, () -> ParallelEvaluator.tableSize(0, 1e300, 1e-300));
+    }
+
+    @Test
+    void matchesEngine() {
+        ParallelEvaluator evaluator = new ParallelEvaluator(new ForkJoinPool(2));
+        int size = 10_000;
+        double[] operandsFirst = new double[size];
+        double[] operandsSecond = new double[size];
+        for (int i = 0; i < size; i++) {
+            operandsFirst[i] = i * 0.1;
+            operandsSecond[i] = 0.2 - i * 0.03;
+        }
+        DecimalFormatter formatter = new DecimalFormatter();
+        for (String operator : new String[] {CalculatorEngine.PLUS_SYMBOL, CalculatorEngine.MINUS_SYMBOL, CalculatorEngine.MULTIPLY_SYMBOL, CalculatorEngine.DIVIDE_SYMBOL, CalculatorEngine.POWER_SYMBOL}) {
+            double[] expected = new double[size];
+            for (int i = 0; i < size; i++) {
+                expected[i] = CalculatorEngine.evaluate(operator, operandsFirst[i], operandsSecond[i], formatter);
+            }
+            assertArrayEquals(expected, evaluator.evaluate(operator, operandsFirst, operandsSecond), operator);
+        }
+    }
+}
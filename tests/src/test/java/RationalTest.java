@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RationalTest {
+    // Value of a fraction rounded once to the nearest double, for comparison.
+    private static double exactDouble(BigInteger numerator, BigInteger denominator) {
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), new MathContext(2500)).doubleValue();
+    }
+
+    @Test
+    void reducesToLowestTerms() {
+        Rational value = Rational.of(6, -4);
+        assertEquals(BigInteger.valueOf(-3), value.getNumerator());
+        assertEquals(BigInteger.valueOf(2), value.getDenominator());
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Rational tenth = Rational.of(1, 10);
+        assertEquals(Rational.of(3, 10), tenth.add(Rational.of(2, 10)));
+        assertEquals(Rational.valueOf(1), Rational.of(1, 3).multiply(Rational.valueOf(3)));
+        assertEquals(Rational.of(-1, 6), Rational.of(1, 3).subtract(Rational.of(1, 2)));
+        assertEquals(Rational.of(2, 3), Rational.of(1, 3).divide(Rational.of(1, 2)));
+    }
+
+    @Test
+    void multipliesLongMinValueNumerators() {
+        Rational min = Rational.of(Long.MIN_VALUE, 1);
+        assertEquals(Rational.of(BigInteger.valueOf(Long.MIN_VALUE).multiply(BigInteger.valueOf(5)), BigInteger.valueOf(7)), min.multiply(Rational.of(5, 7)));
+        assertEquals(Rational.of(BigInteger.valueOf(Long.MIN_VALUE).negate(), BigInteger.valueOf(3)), min.multiply(Rational.of(-1, 3)));
+        assertEquals(Rational.of(BigInteger.valueOf(Long.MIN_VALUE).multiply(BigInteger.valueOf(Long.MIN_VALUE)), BigInteger.ONE), min.multiply(min));
+        assertEquals(Rational.of(1, 2), Rational.of(Long.MIN_VALUE, 3).multiply(Rational.of(3, Long.MIN_VALUE).divide(Rational.valueOf(2))));
+    }
+
+    @Test
+    void addsBeyondTheRangeOfLong() {
+        Rational max = Rational.valueOf(Long.MAX_VALUE);
+        assertEquals(Rational.of(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1), BigInteger.ONE), max.add(max));
+        assertEquals(Rational.valueOf(-1), Rational.valueOf(Long.MIN_VALUE).add(max));
+    }
+
+    @Test
+    void doubleValueRoundsSubnormalsOnce() {
+        // 3 * 2^-1075 is halfway between 2^-1074 and 2^-1073, and rounds to the even 2^-1073.
+        assertEquals(Math.scalb(2.0, -1074), Rational.of(BigInteger.valueOf(3), BigInteger.ONE.shiftLeft(1075)).doubleValue());
+        // Just above half of the smallest subnormal, which rounds up, and half of it, which rounds to zero.
+        // Rounding to 53 bits first would give exactly half, which then rounds to zero.
+        assertEquals(Double.MIN_VALUE, Rational.of(BigInteger.ONE.shiftLeft(59).add(BigInteger.ONE), BigInteger.ONE.shiftLeft(1134)).doubleValue());
+        assertEquals(0.0, Rational.of(BigInteger.ONE, BigInteger.ONE.shiftLeft(1075)).doubleValue());
+        assertEquals(-Double.MIN_NORMAL, Rational.of(BigInteger.ONE.negate(), BigInteger.ONE.shiftLeft(1022)).doubleValue());
+    }
+
+    @Test
+    void doubleValueMatchesCorrectRounding() {
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++) {
+            BigInteger numerator = new BigInteger(1 + random.nextInt(120), random).add(BigInteger.ONE);
+            BigInteger denominator = new BigInteger(1 + random.nextInt(60), random).add(BigInteger.ONE).shiftLeft(random.nextInt(1150));
+            if (random.nextBoolean()) {
+                numerator = numerator.negate();
+            }
+            assertEquals(exactDouble(numerator, denominator), Rational.of(numerator, denominator).doubleValue(), numerator + "/" + denominator);
+        }
+    }
+
+    @Test
+    void gcdOfNonNegativeLongs() {
+        assertEquals(6, Rational.gcd(48, 18));
+        assertEquals(7, Rational.gcd(0, 7));
+        assertEquals(1, Rational.gcd(Long.MAX_VALUE, Long.MAX_VALUE - 1));
+    }
+}
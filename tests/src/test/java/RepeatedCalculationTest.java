@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class RepeatedCalculationTest {
+    // Result of solving the calculation the specified number of times one at a time.
+    private static double solveEach(String operator, double operandFirst, double operandSecond, long count) {
+        DecimalFormatter formatter = new DecimalFormatter();
+        double operand = operandFirst;
+        double result = operandFirst;
+        for (long i = 0; i < count; i++) {
+            result = CalculatorEngine.evaluate(operator, operand, operandSecond, formatter);
+            operand = DecimalFormatter.resultValue(result);
+        }
+        return result;
+    }
+
+    private static double repeat(String operator, double operandFirst, double operandSecond, long count) {
+        RepeatedCalculation repeated = new RepeatedCalculation(new DecimalFormatter());
+        repeated.evaluate(operator, operandFirst, operandSecond, count);
+        return repeated.getResult();
+    }
+
+    @Test
+    void matchesSolvingEachRepetition() {
+        String[] operators = {CalculatorEngine.PLUS_SYMBOL, CalculatorEngine.MINUS_SYMBOL, CalculatorEngine.MULTIPLY_SYMBOL, CalculatorEngine.DIVIDE_SYMBOL, CalculatorEngine.POWER_SYMBOL};
+        double[][] operands = {{0.1, 0.2}, {1.5, 0.001}, {-3.25, 0.07}, {1e6, 0.3}, {2, 3}, {1.0001, 1.0001}, {7, -0.5}, {0.5, 2}};
+        for (String operator : operators) {
+            for (double[] pair : operands) {
+                for (long count : new long[] {1, 2, 10, 1000, 100_000}) {
+                    assertEquals(solveEach(operator, pair[0], pair[1], count), repeat(operator, pair[0], pair[1], count), pair[0] + operator + pair[1] + " x" + count);
+                }
+            }
+        }
+    }
+
+    @Test
+    void skipsWholeCycles() {
+        // Dividing by -1 alternates between two values, and an odd number of repetitions ends on the negated value.
+        assertEquals(-5.0, repeat(CalculatorEngine.DIVIDE_SYMBOL, 5, -1, Long.MAX_VALUE));
+        // Doubling overflows to a result shown as an error, after which the operand is zero.
+        assertEquals(0.0, repeat(CalculatorEngine.MULTIPLY_SYMBOL, 1, 2, Long.MAX_VALUE));
+        // Squaring a number above 1 also ends in an error, after which the operand is zero, and then stays zero.
+        assertEquals(0.0, repeat(CalculatorEngine.POWER_SYMBOL, 1.5, 2, Long.MAX_VALUE));
+        // Repeated square roots stop changing once they reach 1.
+        assertEquals(1.0, repeat(CalculatorEngine.POWER_SYMBOL, 1e6, 0.5, Long.MAX_VALUE));
+    }
+
+    @Test
+    void skipsAheadInSums() {
+        assertEquals(solveEach(CalculatorEngine.PLUS_SYMBOL, 0.1, 0.1, 3_000_000), repeat(CalculatorEngine.PLUS_SYMBOL, 0.1, 0.1, 3_000_000));
+        assertEquals(solveEach(CalculatorEngine.MINUS_SYMBOL, 2.5, 0.003, 3_000_000), repeat(CalculatorEngine.MINUS_SYMBOL, 2.5, 0.003, 3_000_000));
+    }
+
+    @Test
+    void engineRepeatMatchesRepeatedSolves() {
+        for (String operator : new String[] {CalculatorEngine.PLUS_SYMBOL, CalculatorEngine.MULTIPLY_SYMBOL, CalculatorEngine.DIVIDE_SYMBOL}) {
+            CalculatorEngine solved = new CalculatorEngine();
+            CalculatorEngine repeated = new CalculatorEngine();
+            for (CalculatorEngine engine : new CalculatorEngine[] {solved, repeated}) {
+                engine.enter("1.1");
+                engine.operate(operator);
+                engine.enter("1.3");
+            }
+            for (int i = 0; i < 500; i++) {
+                solved.solve();
+            }
+            repeated.repeat(500);
+            assertEquals(solved.getDisplayText(), repeated.getDisplayText(), operator);
+        }
+    }
+}